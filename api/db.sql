@@ -43,6 +43,16 @@ CREATE TABLE comments (
   FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 );
 
+CREATE TABLE idempotency_keys (
+  user_id INT NOT NULL,
+  idempotency_key VARCHAR(64) NOT NULL,
+  status_code INT,
+  response_body MEDIUMTEXT,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (user_id, idempotency_key),
+  FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
 INSERT INTO meetup_points (name, location) VALUES
 ('Main Gate', 'President University Main Entrance'),
 ('Library', 'President University Library Building'),
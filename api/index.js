@@ -45,6 +45,11 @@ const authenticateToken = (req, res, next) => {
   }
 
   jwt.verify(token, JWT_SECRET, (err, user) => {
+    // An expired token is answered with 401 so clients know to refresh it; anything
+    // else wrong with the token stays a 403.
+    if (err && err.name === 'TokenExpiredError') {
+      return res.status(401).json({ error: 'Token expired' });
+    }
     if (err) {
       return res.status(403).json({ error: 'Invalid or expired token' });
     }
@@ -53,8 +58,127 @@ const authenticateToken = (req, res, next) => {
   });
 };
 
-const compressImage = async (base64Image) => {
-  const buffer = Buffer.from(base64Image.split(',')[1], 'base64');
+const TOKEN_LIFETIME = '30d';
+// How long after expiry a token can still be exchanged for a new one.
+const TOKEN_REFRESH_WINDOW_SECONDS = 7 * 24 * 60 * 60;
+
+const signToken = (user) => jwt.sign({ userId: user.id, email: user.email }, JWT_SECRET, {
+  expiresIn: TOKEN_LIFETIME
+});
+
+const revalidate = (req, res, next) => {
+  res.set('Cache-Control', 'private, no-cache');
+  res.vary('Authorization');
+  next();
+};
+
+const IDEMPOTENCY_KEY_MAX_LENGTH = 64;
+// A claim still without an outcome after this long belongs to a request that died
+// without recording one, and is handed to the next request with the same key.
+const IDEMPOTENCY_CLAIM_TIMEOUT_SECONDS = 120;
+
+// Reserves (user, key) before the work is done. Returns the stored outcome when the
+// key was used before (status_code is null while that request is still running), or
+// null when the caller now owns the key and must record the outcome.
+const claimIdempotencyKey = async (userId, key) => {
+  try {
+    await pool.query(
+      'INSERT INTO idempotency_keys (user_id, idempotency_key) VALUES (?, ?)',
+      [userId, key]
+    );
+    return null;
+  } catch (error) {
+    if (error.code !== 'ER_DUP_ENTRY') {
+      throw error;
+    }
+  }
+
+  const [reclaimed] = await pool.query(
+    `UPDATE idempotency_keys SET created_at = CURRENT_TIMESTAMP
+     WHERE user_id = ? AND idempotency_key = ? AND status_code IS NULL
+       AND created_at < NOW() - INTERVAL ? SECOND`,
+    [userId, key, IDEMPOTENCY_CLAIM_TIMEOUT_SECONDS]
+  );
+  if (reclaimed.affectedRows === 1) {
+    return null;
+  }
+  const [rows] = await pool.query(
+    'SELECT status_code, response_body FROM idempotency_keys WHERE user_id = ? AND idempotency_key = ?',
+    [userId, key]
+  );
+  // Released between the insert and the select; the retry will claim it.
+  return rows[0] || { status_code: null };
+};
+
+const releaseIdempotencyKey = (userId, key) => pool.query(
+  'DELETE FROM idempotency_keys WHERE user_id = ? AND idempotency_key = ? AND status_code IS NULL',
+  [userId, key]
+).catch(() => {});
+
+const recordIdempotencyKey = (userId, key, statusCode, body) => {
+  const query = statusCode < 500
+    ? pool.query(
+      'UPDATE idempotency_keys SET status_code = ?, response_body = ? WHERE user_id = ? AND idempotency_key = ?',
+      [statusCode, JSON.stringify(body), userId, key]
+    )
+    : releaseIdempotencyKey(userId, key);
+  return query.catch(() => {});
+};
+
+// Requests carrying an Idempotency-Key header are executed once per user and key;
+// repeats get the original response replayed.
+const idempotent = async (req, res, next) => {
+  const key = req.get('Idempotency-Key');
+  if (!key) {
+    return next();
+  }
+  if (key.length > IDEMPOTENCY_KEY_MAX_LENGTH) {
+    return res.status(400).json({ error: 'Invalid idempotency key' });
+  }
+
+  try {
+    const stored = await claimIdempotencyKey(req.user.userId, key);
+    if (stored) {
+      if (stored.status_code === null) {
+        return res.status(409).json({ error: 'Request already in progress' });
+      }
+      return res.status(stored.status_code).type('application/json').send(stored.response_body);
+    }
+  } catch (error) {
+    return res.status(500).json({ error: 'Failed to process request' });
+  }
+
+  let recorded = false;
+  const json = res.json.bind(res);
+  res.json = (body) => {
+    recorded = true;
+    recordIdempotencyKey(req.user.userId, key, res.statusCode, body);
+    return json(body);
+  };
+  // Any other ending (an error passed to Express, a dropped connection) frees the key
+  // so a retry can run the request again.
+  res.on('close', () => {
+    if (!recorded) {
+      releaseIdempotencyKey(req.user.userId, key);
+    }
+  });
+  next();
+};
+
+const latestUpdate = (rows) => {
+  let latest = null;
+  for (const row of rows) {
+    const updated = new Date(row.updated_at);
+    if (!latest || updated > latest) {
+      latest = updated;
+    }
+  }
+  return latest;
+};
+
+// Accepts an uploaded file buffer or a legacy data:image/...;base64 string.
+const compressImage = async (image) => {
+  const buffer = Buffer.isBuffer(image) ? image : Buffer.from(image.split(',')[1], 'base64');
   let quality = 90;
   let compressed = await sharp(buffer).jpeg({ quality }).toBuffer();
 
@@ -114,9 +238,7 @@ app.post('/api/login', async (req, res) => {
       return res.status(401).json({ error: 'Invalid credentials' });
     }
 
-    const token = jwt.sign({ userId: user.id, email: user.email }, JWT_SECRET, {
-      expiresIn: '30d'
-    });
+    const token = signToken(user);
 
     res.json({
       message: 'Login successful',
@@ -133,7 +255,38 @@ app.post('/api/login', async (req, res) => {
   }
 });
 
-app.get('/api/profile', authenticateToken, async (req, res) => {
+// Exchanges a valid or recently expired token for a fresh one, so a client can renew a
+// session without asking for the password again.
+app.post('/api/token/refresh', async (req, res) => {
+  const authHeader = req.headers['authorization'];
+  const token = authHeader && authHeader.split(' ')[1];
+
+  if (!token) {
+    return res.status(401).json({ error: 'Access token required' });
+  }
+
+  let payload;
+  try {
+    payload = jwt.verify(token, JWT_SECRET, { ignoreExpiration: true });
+  } catch (error) {
+    return res.status(403).json({ error: 'Invalid token' });
+  }
+  if (payload.exp + TOKEN_REFRESH_WINDOW_SECONDS < Date.now() / 1000) {
+    return res.status(403).json({ error: 'Session expired, please log in again' });
+  }
+
+  try {
+    const [users] = await pool.query('SELECT id, email FROM users WHERE id = ?', [payload.userId]);
+    if (users.length === 0) {
+      return res.status(403).json({ error: 'User not found' });
+    }
+    res.json({ message: 'Token refreshed', token: signToken(users[0]) });
+  } catch (error) {
+    res.status(500).json({ error: 'Failed to refresh token' });
+  }
+});
+
+app.get('/api/profile', authenticateToken, revalidate, async (req, res) => {
   try {
     const [users] = await pool.query(
       'SELECT id, name, email, profile_picture, created_at FROM users WHERE id = ?',
@@ -150,9 +303,10 @@ app.get('/api/profile', authenticateToken, async (req, res) => {
   }
 });
 
-app.put('/api/profile', authenticateToken, async (req, res) => {
+app.put('/api/profile', authenticateToken, upload.single('profile_picture'), idempotent, async (req, res) => {
   try {
-    const { name, profile_picture } = req.body;
+    const { name } = req.body;
+    const profile_picture = req.file ? req.file.buffer : req.body.profile_picture;
     let compressedImage = null;
 
     if (profile_picture) {
@@ -194,17 +348,42 @@ app.put('/api/profile', authenticateToken, async (req, res) => {
   }
 });
 
-app.get('/api/reports', authenticateToken, async (req, res) => {
+app.get('/api/reports', authenticateToken, revalidate, async (req, res) => {
   try {
+    const limit = parseInt(req.query.limit, 10);
+    const before = parseInt(req.query.before, 10);
+    const conditions = [];
+    const params = [];
+
+    // created_at is set on insert and never changed, so id order matches the feed order.
+    // Comparing ids directly keeps paging working when the cursor report was deleted.
+    if (Number.isInteger(before)) {
+      conditions.push('r.id < ?');
+      params.push(before);
+    }
+
+    let limitClause = '';
+    if (Number.isInteger(limit) && limit > 0) {
+      limitClause = 'LIMIT ?';
+      params.push(Math.min(limit, 100));
+    }
+
     const [reports] = await pool.query(
       `SELECT r.*, u.name as user_name, u.profile_picture as user_profile_picture, 
        m.name as meetup_point_name, m.location as meetup_point_location
        FROM reports r
        JOIN users u ON r.user_id = u.id
        JOIN meetup_points m ON r.meetup_point_id = m.id
-       ORDER BY r.created_at DESC`
+       ${conditions.length ? 'WHERE ' + conditions.join(' AND ') : ''}
+       ORDER BY r.created_at DESC, r.id DESC
+       ${limitClause}`,
+      params
     );
 
+    const lastModified = latestUpdate(reports);
+    if (lastModified) {
+      res.set('Last-Modified', lastModified.toUTCString());
+    }
     res.json(reports);
   } catch (error) {
     res.status(500).json({ error: 'Failed to fetch reports' });
@@ -236,7 +415,7 @@ app.get('/api/reports/search', authenticateToken, async (req, res) => {
   }
 });
 
-app.get('/api/reports/:id', authenticateToken, async (req, res) => {
+app.get('/api/reports/:id', authenticateToken, revalidate, async (req, res) => {
   try {
     const [reports] = await pool.query(
       `SELECT r.*, u.name as user_name, u.profile_picture as user_profile_picture,
@@ -252,15 +431,17 @@ app.get('/api/reports/:id', authenticateToken, async (req, res) => {
       return res.status(404).json({ error: 'Report not found' });
     }
 
+    res.set('Last-Modified', new Date(reports[0].updated_at).toUTCString());
     res.json(reports[0]);
   } catch (error) {
     res.status(500).json({ error: 'Failed to fetch report' });
   }
 });
 
-app.post('/api/reports', authenticateToken, async (req, res) => {
+app.post('/api/reports', authenticateToken, upload.single('image'), idempotent, async (req, res) => {
   try {
-    const { title, description, image, meetup_point_id } = req.body;
+    const { title, description, meetup_point_id } = req.body;
+    const image = req.file ? req.file.buffer : req.body.image;
 
     if (!title || !description || !image || !meetup_point_id) {
       return res.status(400).json({ error: 'All fields are required' });
@@ -292,7 +473,7 @@ app.post('/api/reports', authenticateToken, async (req, res) => {
   }
 });
 
-app.get('/api/meetup-points', authenticateToken, async (req, res) => {
+app.get('/api/meetup-points', authenticateToken, revalidate, async (req, res) => {
   try {
     const [points] = await pool.query('SELECT * FROM meetup_points ORDER BY name');
     res.json(points);
@@ -301,53 +482,218 @@ app.get('/api/meetup-points', authenticateToken, async (req, res) => {
   }
 });
 
-app.get('/api/reports/:id/comments', authenticateToken, async (req, res) => {
+app.get('/api/reports/:id/comments', authenticateToken, revalidate, async (req, res) => {
   try {
+    const limit = parseInt(req.query.limit, 10);
+    const beforeId = parseInt(req.query.before_id, 10);
+    const afterId = parseInt(req.query.after_id, 10);
+    const conditions = ['c.report_id = ?'];
+    const params = [req.params.id];
+
+    if (Number.isInteger(beforeId)) {
+      conditions.push('c.id < ?');
+      params.push(beforeId);
+    }
+    if (Number.isInteger(afterId)) {
+      conditions.push('c.id > ?');
+      params.push(afterId);
+    }
+
+    // New comments are read forwards from after_id; pages of older comments are read
+    // backwards from the newest and flipped, so results are always oldest first.
+    const newestFirst = !Number.isInteger(afterId) && Number.isInteger(limit) && limit > 0;
+
+    let limitClause = '';
+    if (Number.isInteger(limit) && limit > 0) {
+      limitClause = 'LIMIT ?';
+      params.push(Math.min(limit, 100));
+    }
+
     const [comments] = await pool.query(
       `SELECT c.*, u.name as user_name, u.profile_picture as user_profile_picture
        FROM comments c
        JOIN users u ON c.user_id = u.id
-       WHERE c.report_id = ?
-       ORDER BY c.created_at ASC`,
-      [req.params.id]
+       WHERE ${conditions.join(' AND ')}
+       ORDER BY c.id ${newestFirst ? 'DESC' : 'ASC'}
+       ${limitClause}`,
+      params
     );
 
-    res.json(comments);
+    res.json(newestFirst ? comments.reverse() : comments);
   } catch (error) {
     res.status(500).json({ error: 'Failed to fetch comments' });
   }
 });
 
-app.post('/api/reports/:id/comments', authenticateToken, async (req, res) => {
-  try {
-    const { comment } = req.body;
+const commentSubscribers = new Map();
+const STREAM_PING_MS = 25000;
+const STREAM_REPLAY_LIMIT = 100;
 
-    if (!comment) {
-      return res.status(400).json({ error: 'Comment is required' });
+const sendCommentEvent = (subscriber, comment) => {
+  if (comment.id <= subscriber.lastSentId) {
+    return;
+  }
+  subscriber.lastSentId = comment.id;
+  subscriber.res.write(`id: ${comment.id}\nevent: comment\ndata: ${JSON.stringify(comment)}\n\n`);
+};
+
+const broadcastComment = (reportId, comment) => {
+  const subscribers = commentSubscribers.get(String(reportId));
+  if (!subscribers) {
+    return;
+  }
+  for (const subscriber of subscribers) {
+    if (subscriber.pending) {
+      subscriber.pending.push(comment);
+    } else {
+      sendCommentEvent(subscriber, comment);
     }
+  }
+};
 
-    const [result] = await pool.query(
-      'INSERT INTO comments (report_id, user_id, comment) VALUES (?, ?, ?)',
-      [req.params.id, req.user.userId, comment]
-    );
+// Server-sent events for new comments on a report. A reconnecting client sends
+// Last-Event-ID and first receives the comments it missed; comments posted while
+// those are being read are held back so events always arrive in id order.
+app.get('/api/reports/:id/comments/stream', authenticateToken, async (req, res) => {
+  const reportId = String(req.params.id);
+  const lastEventId = parseInt(req.get('Last-Event-ID'), 10);
+  const subscriber = {
+    res,
+    lastSentId: Number.isInteger(lastEventId) ? lastEventId : 0,
+    pending: Number.isInteger(lastEventId) ? [] : null
+  };
+
+  res.set({
+    'Content-Type': 'text/event-stream',
+    'Cache-Control': 'no-store',
+    Connection: 'keep-alive'
+  });
+  res.flushHeaders();
 
-    const [newComment] = await pool.query(
+  if (!commentSubscribers.has(reportId)) {
+    commentSubscribers.set(reportId, new Set());
+  }
+  const subscribers = commentSubscribers.get(reportId);
+  subscribers.add(subscriber);
+
+  const ping = setInterval(() => res.write(': ping\n\n'), STREAM_PING_MS);
+  req.on('close', () => {
+    clearInterval(ping);
+    subscribers.delete(subscriber);
+    if (subscribers.size === 0) {
+      commentSubscribers.delete(reportId);
+    }
+  });
+
+  if (!subscriber.pending) {
+    return;
+  }
+  try {
+    const [missed] = await pool.query(
       `SELECT c.*, u.name as user_name, u.profile_picture as user_profile_picture
        FROM comments c
        JOIN users u ON c.user_id = u.id
-       WHERE c.id = ?`,
-      [result.insertId]
+       WHERE c.report_id = ? AND c.id > ?
+       ORDER BY c.id ASC
+       LIMIT ?`,
+      [reportId, lastEventId, STREAM_REPLAY_LIMIT]
     );
+    for (const comment of missed.concat(subscriber.pending)) {
+      sendCommentEvent(subscriber, comment);
+    }
+    subscriber.pending = null;
+  } catch (error) {
+    res.end();
+  }
+});
+
+const insertComment = async (reportId, userId, comment) => {
+  const [result] = await pool.query(
+    'INSERT INTO comments (report_id, user_id, comment) VALUES (?, ?, ?)',
+    [reportId, userId, comment]
+  );
+
+  const [newComment] = await pool.query(
+    `SELECT c.*, u.name as user_name, u.profile_picture as user_profile_picture
+     FROM comments c
+     JOIN users u ON c.user_id = u.id
+     WHERE c.id = ?`,
+    [result.insertId]
+  );
+
+  broadcastComment(reportId, newComment[0]);
+  return newComment[0];
+};
+
+app.post('/api/reports/:id/comments', authenticateToken, idempotent, async (req, res) => {
+  try {
+    const { comment } = req.body;
+
+    if (!comment) {
+      return res.status(400).json({ error: 'Comment is required' });
+    }
 
     res.status(201).json({
       message: 'Comment added successfully',
-      comment: newComment[0]
+      comment: await insertComment(req.params.id, req.user.userId, comment)
     });
   } catch (error) {
     res.status(500).json({ error: 'Failed to add comment' });
   }
 });
 
+const COMMENT_BATCH_LIMIT = 50;
+
+const addBatchedComment = async (userId, item) => {
+  if (!item || !item.report_id || !item.comment) {
+    return { status: 400, error: 'Comment is required' };
+  }
+  const key = item.idempotency_key;
+  if (key) {
+    if (key.length > IDEMPOTENCY_KEY_MAX_LENGTH) {
+      return { status: 400, error: 'Invalid idempotency key' };
+    }
+    const stored = await claimIdempotencyKey(userId, key);
+    if (stored) {
+      return stored.status_code === null
+        ? { status: 409, error: 'Request already in progress' }
+        : JSON.parse(stored.response_body);
+    }
+  }
+
+  let outcome;
+  try {
+    outcome = { status: 201, comment: await insertComment(item.report_id, userId, item.comment) };
+  } catch (error) {
+    outcome = error.code === 'ER_NO_REFERENCED_ROW_2'
+      ? { status: 404, error: 'Report not found' }
+      : { status: 500, error: 'Failed to add comment' };
+  }
+  if (key) {
+    await recordIdempotencyKey(userId, key, outcome.status, outcome);
+  }
+  return outcome;
+};
+
+// Several comments, possibly on different reports, in one request. Each item has its
+// own outcome and idempotency key, so a partly applied batch can simply be resent.
+app.post('/api/comments/batch', authenticateToken, async (req, res) => {
+  const items = req.body.comments;
+  if (!Array.isArray(items) || items.length === 0 || items.length > COMMENT_BATCH_LIMIT) {
+    return res.status(400).json({ error: `Between 1 and ${COMMENT_BATCH_LIMIT} comments are required` });
+  }
+
+  try {
+    const results = [];
+    for (const item of items) {
+      results.push(await addBatchedComment(req.user.userId, item));
+    }
+    res.json({ results });
+  } catch (error) {
+    res.status(500).json({ error: 'Failed to add comments' });
+  }
+});
+
 app.listen(PORT, () => {
   console.log(`Server running on port ${PORT}`);
 });
\ No newline at end of file
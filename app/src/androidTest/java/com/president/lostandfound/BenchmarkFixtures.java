@@ -0,0 +1,83 @@
+package com.president.lostandfound;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.util.Base64;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+// Deterministic inputs for the benchmarks, so numbers from different runs compare.
+class BenchmarkFixtures {
+    private static final long SEED = 42;
+
+    // A photo-like image: a gradient with seeded noise, so JPEG can't compress it to
+    // nothing the way it would a flat colour.
+    static Bitmap photo(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+        paint.setShader(new LinearGradient(0, 0, width, height, Color.rgb(40, 90, 160), Color.rgb(220, 180, 90),
+                Shader.TileMode.CLAMP));
+        canvas.drawRect(0, 0, width, height, paint);
+
+        Random random = new Random(SEED);
+        Paint dot = new Paint();
+        for (int i = 0; i < width * height / 50; i++) {
+            dot.setColor(Color.argb(60, random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            canvas.drawCircle(random.nextInt(width), random.nextInt(height), 1 + random.nextInt(3), dot);
+        }
+        return bitmap;
+    }
+
+    static byte[] jpeg(Bitmap bitmap, int quality) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, quality, out);
+        return out.toByteArray();
+    }
+
+    static String dataUri(byte[] jpeg) {
+        return "data:image/jpeg;base64," + Base64.encodeToString(jpeg, Base64.NO_WRAP);
+    }
+
+    static File writeFile(File dir, String name, byte[] bytes) throws IOException {
+        File file = new File(dir, name);
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+        return file;
+    }
+
+    // A feed page the way the server sends it: every row carries its image and the
+    // author's picture, authors and meetup points repeat.
+    static String reportsJson(int count, String image, String profilePicture) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i + 1)
+                    .append(",\"user_id\":").append(i % 20)
+                    .append(",\"title\":\"Lost item ").append(i).append('"')
+                    .append(",\"description\":\"Blue backpack with a laptop inside, left near the library entrance\"")
+                    .append(",\"image\":\"").append(image).append('"')
+                    .append(",\"meetup_point_id\":").append(i % 5)
+                    .append(",\"created_at\":\"2024-01-15T10:30:00.000Z\"")
+                    .append(",\"updated_at\":\"2024-01-15T10:30:00.000Z\"")
+                    .append(",\"user_name\":\"User ").append(i % 20).append('"')
+                    .append(",\"user_profile_picture\":\"").append(profilePicture).append('"')
+                    .append(",\"meetup_point_name\":\"Point ").append(i % 5).append('"')
+                    .append(",\"meetup_point_location\":\"Building ").append(i % 5).append('"')
+                    .append('}');
+        }
+        return json.append(']').toString();
+    }
+}
@@ -0,0 +1,32 @@
+package com.president.lostandfound;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class FormatDateBenchmark {
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void timestamp() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            ReportDetailActivity.formatDate("2024-01-15T10:30:00.000Z");
+        }
+    }
+
+    // Missing dates take the exception path.
+    @Test
+    public void missing() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            ReportDetailActivity.formatDate(null);
+        }
+    }
+}
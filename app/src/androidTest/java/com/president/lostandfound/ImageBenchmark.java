@@ -0,0 +1,84 @@
+package com.president.lostandfound;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class ImageBenchmark {
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private Context context;
+    private String reportImage;
+    private File photoFile;
+
+    @Before
+    public void setUp() throws Exception {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        Bitmap listImage = BenchmarkFixtures.photo(800, 600);
+        reportImage = BenchmarkFixtures.dataUri(BenchmarkFixtures.jpeg(listImage, 80));
+        listImage.recycle();
+
+        // Roughly what a phone camera hands the picker.
+        Bitmap photo = BenchmarkFixtures.photo(4000, 3000);
+        photoFile = BenchmarkFixtures.writeFile(context.getCacheDir(), "benchmark-photo.jpg",
+                BenchmarkFixtures.jpeg(photo, 92));
+        photo.recycle();
+    }
+
+    @After
+    public void tearDown() {
+        photoFile.delete();
+    }
+
+    @Test
+    public void decodeDataUri() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            ImageLoader.decodeDataUri(reportImage);
+        }
+    }
+
+    @Test
+    public void decodeFeedThumbnail() {
+        byte[] bytes = ImageLoader.decodeDataUri(reportImage);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Bitmap bitmap = ImageLoader.decodeSampled(bytes, 360, 200, Bitmap.Config.RGB_565);
+            state.pauseTiming();
+            bitmap.recycle();
+            state.resumeTiming();
+        }
+    }
+
+    @Test
+    public void prepareReportImage() throws Exception {
+        Uri uri = Uri.fromFile(photoFile);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            ImagePreparer.Result result = ImagePreparer.prepare(context, uri, ImagePreparer.REPORT_IMAGE);
+            state.pauseTiming();
+            assertTrue(result.file.length() <= 300 * 1024);
+            result.file.delete();
+            result.preview.recycle();
+            state.resumeTiming();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.president.lostandfound;
+
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+import static org.junit.Assert.*;
+
+// Screen-load latency against a local server: each "screen" fires the burst of
+// concurrent calls a tab or detail page makes and waits for all of them. Compares the
+// client settings ApiService used before with ApiService.newTransportBuilder(), over
+// HTTP/2 and HTTP/1.1. Results are logged under the NetworkBenchmark tag.
+@RunWith(Parameterized.class)
+public class NetworkBenchmark {
+    private static final String TAG = "NetworkBenchmark";
+    private static final int REQUESTS_PER_SCREEN = 8;
+    private static final int WARMUP_SCREENS = 10;
+    private static final int MEASURED_SCREENS = 100;
+    private static final long SERVER_DELAY_MS = 20;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> protocols() {
+        return Arrays.asList(new Object[][] {{Protocol.HTTP_2}, {Protocol.HTTP_1_1}});
+    }
+
+    private final Protocol protocol;
+    private MockWebServer server;
+    private HandshakeCertificates clientCertificates;
+
+    public NetworkBenchmark(Protocol protocol) {
+        this.protocol = protocol;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        String localhost = InetAddress.getByName("localhost").getCanonicalHostName();
+        HeldCertificate certificate = new HeldCertificate.Builder()
+                .addSubjectAlternativeName(localhost)
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(certificate)
+                .build();
+        clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(certificate.certificate())
+                .build();
+
+        server = new MockWebServer();
+        server.useHttps(serverCertificates.sslSocketFactory(), false);
+        server.setProtocols(protocol == Protocol.HTTP_2
+                ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                : Collections.singletonList(Protocol.HTTP_1_1));
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                        .setHeadersDelay(SERVER_DELAY_MS, TimeUnit.MILLISECONDS)
+                        .setBody("{\"id\":1,\"title\":\"Lost item\"}");
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void previousClient() throws Exception {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .sslSocketFactory(clientCertificates.sslSocketFactory(), clientCertificates.trustManager())
+                .build();
+        measure("previous", client);
+    }
+
+    @Test
+    public void tunedClient() throws Exception {
+        OkHttpClient client = ApiService.newTransportBuilder()
+                .sslSocketFactory(clientCertificates.sslSocketFactory(), clientCertificates.trustManager())
+                .build();
+        measure("tuned", client);
+    }
+
+    private void measure(String name, OkHttpClient client) throws Exception {
+        try {
+            for (int i = 0; i < WARMUP_SCREENS; i++) {
+                loadScreen(client, i);
+            }
+            long[] samples = new long[MEASURED_SCREENS];
+            for (int i = 0; i < MEASURED_SCREENS; i++) {
+                samples[i] = loadScreen(client, i);
+            }
+            Arrays.sort(samples);
+            Log.i(TAG, String.format("%s %s: p50 %.1f ms, p99 %.1f ms", name, protocol,
+                    samples[percentile(50)] / 1e6, samples[percentile(99)] / 1e6));
+        } finally {
+            client.dispatcher().cancelAll();
+            client.connectionPool().evictAll();
+        }
+    }
+
+    // Wall time from firing the burst until the last response body has been read.
+    private long loadScreen(OkHttpClient client, int screen) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(REQUESTS_PER_SCREEN);
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS_PER_SCREEN; i++) {
+            Request request = new Request.Builder()
+                    .url(server.url("/api/reports/" + (screen * REQUESTS_PER_SCREEN + i)))
+                    .build();
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    failures.incrementAndGet();
+                    done.countDown();
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    try {
+                        response.body().string();
+                    } finally {
+                        response.close();
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(0, failures.get());
+        return System.nanoTime() - start;
+    }
+
+    private static int percentile(int p) {
+        return Math.min(MEASURED_SCREENS - 1, (int) Math.ceil(p / 100.0 * MEASURED_SCREENS) - 1);
+    }
+}
@@ -0,0 +1,69 @@
+package com.president.lostandfound;
+
+import android.graphics.Bitmap;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+@RunWith(Parameterized.class)
+public class ReportParsingBenchmark {
+    private static final Type REPORT_LIST = new TypeToken<List<ApiService.Report>>() {}.getType();
+
+    @Parameterized.Parameters(name = "reports={0}")
+    public static Collection<Object[]> sizes() {
+        return Arrays.asList(new Object[][] {{20}, {100}, {1000}});
+    }
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final int count;
+    private String json;
+
+    public ReportParsingBenchmark(int count) {
+        this.count = count;
+    }
+
+    @Before
+    public void setUp() {
+        Bitmap image = BenchmarkFixtures.photo(320, 240);
+        Bitmap avatar = BenchmarkFixtures.photo(96, 96);
+        json = BenchmarkFixtures.reportsJson(count,
+                BenchmarkFixtures.dataUri(BenchmarkFixtures.jpeg(image, 70)),
+                BenchmarkFixtures.dataUri(BenchmarkFixtures.jpeg(avatar, 70)));
+        image.recycle();
+        avatar.recycle();
+    }
+
+    @Test
+    public void apiJson() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            ApiJson.GSON.fromJson(json, REPORT_LIST);
+        }
+    }
+
+    // The reflective baseline the hand-written adapters replaced.
+    @Test
+    public void reflectiveGson() {
+        Gson gson = new Gson();
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            gson.fromJson(json, REPORT_LIST);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.president.lostandfound;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Shared Gson for everything that talks to the API. The models that arrive in bulk
+// (reports, comments, users, meetup points) use hand-written adapters instead of
+// reflection; other classes fall back to Gson's reflective adapter as before.
+public class ApiJson {
+    public static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapterFactory(new AdapterFactory())
+            .create();
+
+    private static class AdapterFactory implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            Class<? super T> raw = type.getRawType();
+            if (raw == ApiService.Report.class) {
+                return (TypeAdapter<T>) new ReportAdapter().nullSafe();
+            }
+            if (raw == ApiService.Comment.class) {
+                return (TypeAdapter<T>) new CommentAdapter().nullSafe();
+            }
+            if (raw == ApiService.User.class) {
+                return (TypeAdapter<T>) new UserAdapter().nullSafe();
+            }
+            if (raw == ApiService.MeetupPoint.class) {
+                return (TypeAdapter<T>) new MeetupPointAdapter().nullSafe();
+            }
+            return null;
+        }
+    }
+
+    // Rows of a feed page repeat the same author and meetup point names over and over;
+    // sharing one String per distinct value keeps a large page from holding a copy per
+    // row. Profile pictures are left alone: hashing and comparing a whole base64 image
+    // per row costs more than the copies it saves.
+    private static final int INTERN_CAPACITY = 64;
+    private static final Map<String, String> interned = new LinkedHashMap<String, String>(INTERN_CAPACITY, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > INTERN_CAPACITY;
+        }
+    };
+
+    static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        synchronized (interned) {
+            String existing = interned.get(value);
+            if (existing != null) {
+                return existing;
+            }
+            interned.put(value, value);
+            return value;
+        }
+    }
+
+    private static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static int nextInt(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextInt();
+    }
+
+    private static class ReportAdapter extends TypeAdapter<ApiService.Report> {
+        @Override
+        public ApiService.Report read(JsonReader in) throws IOException {
+            ApiService.Report report = new ApiService.Report();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": report.id = nextInt(in); break;
+                    case "user_id": report.user_id = nextInt(in); break;
+                    case "title": report.title = nextString(in); break;
+                    case "description": report.description = nextString(in); break;
+                    case "image": report.image = nextString(in); break;
+                    case "meetup_point_id": report.meetup_point_id = nextInt(in); break;
+                    case "created_at": report.created_at = nextString(in); break;
+                    case "updated_at": report.updated_at = nextString(in); break;
+                    case "user_name": report.user_name = intern(nextString(in)); break;
+                    case "user_profile_picture": report.user_profile_picture = nextString(in); break;
+                    case "meetup_point_name": report.meetup_point_name = intern(nextString(in)); break;
+                    case "meetup_point_location": report.meetup_point_location = intern(nextString(in)); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return report;
+        }
+
+        @Override
+        public void write(JsonWriter out, ApiService.Report report) throws IOException {
+            out.beginObject();
+            out.name("id").value(report.id);
+            out.name("user_id").value(report.user_id);
+            out.name("title").value(report.title);
+            out.name("description").value(report.description);
+            out.name("image").value(report.image);
+            out.name("meetup_point_id").value(report.meetup_point_id);
+            out.name("created_at").value(report.created_at);
+            out.name("updated_at").value(report.updated_at);
+            out.name("user_name").value(report.user_name);
+            out.name("user_profile_picture").value(report.user_profile_picture);
+            out.name("meetup_point_name").value(report.meetup_point_name);
+            out.name("meetup_point_location").value(report.meetup_point_location);
+            out.endObject();
+        }
+    }
+
+    private static class CommentAdapter extends TypeAdapter<ApiService.Comment> {
+        @Override
+        public ApiService.Comment read(JsonReader in) throws IOException {
+            ApiService.Comment comment = new ApiService.Comment();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": comment.id = nextInt(in); break;
+                    case "report_id": comment.report_id = nextInt(in); break;
+                    case "user_id": comment.user_id = nextInt(in); break;
+                    case "comment": comment.comment = nextString(in); break;
+                    case "created_at": comment.created_at = nextString(in); break;
+                    case "updated_at": comment.updated_at = nextString(in); break;
+                    case "user_name": comment.user_name = intern(nextString(in)); break;
+                    case "user_profile_picture": comment.user_profile_picture = nextString(in); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return comment;
+        }
+
+        @Override
+        public void write(JsonWriter out, ApiService.Comment comment) throws IOException {
+            out.beginObject();
+            out.name("id").value(comment.id);
+            out.name("report_id").value(comment.report_id);
+            out.name("user_id").value(comment.user_id);
+            out.name("comment").value(comment.comment);
+            out.name("created_at").value(comment.created_at);
+            out.name("updated_at").value(comment.updated_at);
+            out.name("user_name").value(comment.user_name);
+            out.name("user_profile_picture").value(comment.user_profile_picture);
+            out.endObject();
+        }
+    }
+
+    private static class UserAdapter extends TypeAdapter<ApiService.User> {
+        @Override
+        public ApiService.User read(JsonReader in) throws IOException {
+            ApiService.User user = new ApiService.User();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": user.id = nextInt(in); break;
+                    case "name": user.name = nextString(in); break;
+                    case "email": user.email = nextString(in); break;
+                    case "profile_picture": user.profile_picture = nextString(in); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return user;
+        }
+
+        @Override
+        public void write(JsonWriter out, ApiService.User user) throws IOException {
+            out.beginObject();
+            out.name("id").value(user.id);
+            out.name("name").value(user.name);
+            out.name("email").value(user.email);
+            out.name("profile_picture").value(user.profile_picture);
+            out.endObject();
+        }
+    }
+
+    private static class MeetupPointAdapter extends TypeAdapter<ApiService.MeetupPoint> {
+        @Override
+        public ApiService.MeetupPoint read(JsonReader in) throws IOException {
+            ApiService.MeetupPoint point = new ApiService.MeetupPoint();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": point.id = nextInt(in); break;
+                    case "name": point.name = nextString(in); break;
+                    case "location": point.location = nextString(in); break;
+                    case "created_at": point.created_at = nextString(in); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return point;
+        }
+
+        @Override
+        public void write(JsonWriter out, ApiService.MeetupPoint point) throws IOException {
+            out.beginObject();
+            out.name("id").value(point.id);
+            out.name("name").value(point.name);
+            out.name("location").value(point.location);
+            out.name("created_at").value(point.created_at);
+            out.endObject();
+        }
+    }
+}
@@ -1,24 +1,59 @@
 package com.president.lostandfound;
 
+import android.content.Context;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
+import okhttp3.MultipartBody;
 import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
 import retrofit2.http.Header;
+import retrofit2.http.Multipart;
+import retrofit2.http.Part;
 import retrofit2.http.Query;
 import retrofit2.http.Path;
 import retrofit2.http.POST;
 import retrofit2.http.PUT;
+import retrofit2.http.Streaming;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 import java.util.List;
 
 public class ApiService {
     private static final String BASE_URL = "https://webprog2.f-host.site/";
-    private static ApiInterface apiInterface;
+    private static final long HTTP_CACHE_SIZE = 20L * 1024 * 1024;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    // Nearly all traffic goes to one host. A screen issues up to about six calls at once
+    // (feed, prefetch, comments, outbox) next to a long-lived comment stream; over HTTP/2
+    // these share one connection, over HTTP/1.1 each needs its own. The defaults (five
+    // per host) would queue the sixth call behind the stream.
+    private static final int MAX_REQUESTS = 24;
+    private static final int MAX_REQUESTS_PER_HOST = 8;
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static volatile ApiInterface apiInterface;
+    private static volatile OkHttpClient client;
+    private static Cache httpCache;
+    private static final CachingDns dns = new CachingDns(Dns.SYSTEM);
+    private static final ConnectionPool connectionPool =
+            new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES);
+    private static AuthInterceptor authInterceptor;
 
     public interface ApiInterface {
         @POST("api/register")
@@ -27,32 +62,47 @@ public class ApiService {
         @POST("api/login")
         Call<LoginResponse> login(@Body LoginRequest request);
 
+        // Sends the expiring token itself; AuthInterceptor leaves it alone.
+        @POST("api/token/refresh")
+        Call<LoginResponse> refreshToken(@Header("Authorization") String authorization);
+
         @GET("api/profile")
-        Call<User> getProfile(@Header("Authorization") String token);
+        Call<User> getProfile();
 
+        @Multipart
         @PUT("api/profile")
-        Call<UpdateProfileResponse> updateProfile(@Header("Authorization") String token, @Body UpdateProfileRequest request);
+        Call<UpdateProfileResponse> updateProfile(@Header("Idempotency-Key") String idempotencyKey,
+                                                  @Part("name") RequestBody name,
+                                                  @Part MultipartBody.Part profilePicture);
 
         @GET("api/meetup-points")
-        Call<List<MeetupPoint>> getMeetupPoints(@Header("Authorization") String token);
+        Call<List<MeetupPoint>> getMeetupPoints();
 
+        @Multipart
         @POST("api/reports")
-        Call<CreateReportResponse> createReport(@Header("Authorization") String token, @Body CreateReportRequest request);
+        Call<CreateReportResponse> createReport(@Header("Idempotency-Key") String idempotencyKey,
+                                                @Part("title") RequestBody title,
+                                                @Part("description") RequestBody description,
+                                                @Part("meetup_point_id") RequestBody meetupPointId,
+                                                @Part MultipartBody.Part image);
 
+        @Streaming
         @GET("api/reports")
-        Call<List<Report>> getReports(@Header("Authorization") String token);
+        Call<ResponseBody> getReportsStream(@Query("limit") Integer limit, @Query("before") Integer before);
 
         @GET("api/reports/{id}")
-        Call<Report> getReportDetail(@Header("Authorization") String token, @Path("id") int reportId);
+        Call<Report> getReportDetail(@Path("id") int reportId);
 
         @GET("api/reports/{id}/comments")
-        Call<List<Comment>> getComments(@Header("Authorization") String token, @Path("id") int reportId);
+        Call<List<Comment>> getComments(@Path("id") int reportId,
+                                        @Query("limit") Integer limit, @Query("before_id") Integer beforeId,
+                                        @Query("after_id") Integer afterId);
 
-        @POST("api/reports/{id}/comments")
-        Call<AddCommentResponse> addComment(@Header("Authorization") String token, @Path("id") int reportId, @Body AddCommentRequest request);
+        @POST("api/comments/batch")
+        Call<CommentBatchResponse> addComments(@Body CommentBatchRequest request);
 
         @GET("api/reports/search")
-        Call<List<Report>> searchReports(@Header("Authorization") String token, @Query("q") String query);
+        Call<List<Report>> searchReports(@Query("q") String query);
     }
 
     public static class RegisterRequest {
@@ -95,16 +145,6 @@ public class ApiService {
         String profile_picture;
     }
 
-    public static class UpdateProfileRequest {
-        String name;
-        String profile_picture;
-
-        public UpdateProfileRequest(String name, String profile_picture) {
-            this.name = name;
-            this.profile_picture = profile_picture;
-        }
-    }
-
     public static class UpdateProfileResponse {
         String message;
         User user;
@@ -117,20 +157,6 @@ public class ApiService {
         public String created_at;
     }
 
-    public static class CreateReportRequest {
-        String title;
-        String description;
-        String image;
-        int meetup_point_id;
-
-        public CreateReportRequest(String title, String description, String image, int meetup_point_id) {
-            this.title = title;
-            this.description = description;
-            this.image = image;
-            this.meetup_point_id = meetup_point_id;
-        }
-    }
-
     public static class Report {
         public int id;
         public int user_id;
@@ -162,39 +188,134 @@ public class ApiService {
         public String user_profile_picture;
     }
 
-    public static class AddCommentRequest {
+    public static class CommentBatchRequest {
+        List<CommentBatchItem> comments;
+
+        public CommentBatchRequest(List<CommentBatchItem> comments) {
+            this.comments = comments;
+        }
+    }
+
+    public static class CommentBatchItem {
+        int report_id;
         String comment;
+        String idempotency_key;
 
-        public AddCommentRequest(String comment) {
+        public CommentBatchItem(int report_id, String comment, String idempotency_key) {
+            this.report_id = report_id;
             this.comment = comment;
+            this.idempotency_key = idempotency_key;
         }
     }
 
-    public static class AddCommentResponse {
-        public String message;
+    public static class CommentBatchResponse {
+        public List<CommentBatchResult> results;
+    }
+
+    public static class CommentBatchResult {
+        public int status;
         public Comment comment;
+        public String error;
+    }
+
+    public static void init(Context context) {
+        httpCache = new Cache(new File(context.getCacheDir(), "http"), HTTP_CACHE_SIZE);
+        authInterceptor = new AuthInterceptor(SessionStore.getInstance(context));
+    }
+
+    public static void clearCache() {
+        if (httpCache == null) {
+            return;
+        }
+        try {
+            httpCache.evictAll();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static OkHttpClient getClient() {
+        OkHttpClient result = client;
+        if (result == null) {
+            synchronized (ApiService.class) {
+                result = client;
+                if (result == null) {
+                    result = newTransportBuilder()
+                            .cache(httpCache)
+                            .eventListenerFactory(MetricsEventListener.FACTORY)
+                            .addInterceptor(authInterceptor)
+                            .addInterceptor(new DebugLoggingInterceptor())
+                            .addNetworkInterceptor(new CachePolicyInterceptor())
+                            .build();
+                    client = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Connection-level settings, kept apart from the app's interceptors and cache so the
+    // network benchmark can measure them on their own.
+    static OkHttpClient.Builder newTransportBuilder() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(connectionPool)
+                .dns(dns)
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Connections and addresses from the previous network are unlikely to work on the
+    // new one; drop them instead of waiting for each to time out.
+    public static void onNetworkChanged() {
+        dns.clear();
+        connectionPool.evictAll();
+    }
+
+    // Opens a pooled connection to the API host ahead of the first real request, so DNS,
+    // TCP and TLS setup happen while the first screen is still being created.
+    public static void warmConnection() {
+        Request request = new Request.Builder().url(getBaseUrl()).head().build();
+        getClient().newCall(request).enqueue(new okhttp3.Callback() {
+            @Override
+            public void onFailure(okhttp3.Call call, IOException e) {
+            }
+
+            @Override
+            public void onResponse(okhttp3.Call call, okhttp3.Response response) {
+                response.close();
+            }
+        });
+    }
+
+    public static HttpUrl getBaseUrl() {
+        return HttpUrl.get(BASE_URL);
     }
 
+    // Double-checked so the per-call path is a single volatile read; the warm-up thread
+    // and the main thread may both get here first.
     public static ApiInterface getApiService() {
-        if (apiInterface == null) {
-            HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor();
-            interceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .addInterceptor(interceptor)
-                    .connectTimeout(30, TimeUnit.SECONDS)
-                    .readTimeout(30, TimeUnit.SECONDS)
-                    .writeTimeout(30, TimeUnit.SECONDS)
-                    .build();
-
-            Retrofit retrofit = new Retrofit.Builder()
-                    .baseUrl(BASE_URL)
-                    .client(client)
-                    .addConverterFactory(GsonConverterFactory.create())
-                    .build();
-
-            apiInterface = retrofit.create(ApiInterface.class);
+        ApiInterface result = apiInterface;
+        if (result == null) {
+            synchronized (ApiService.class) {
+                result = apiInterface;
+                if (result == null) {
+                    Retrofit retrofit = new Retrofit.Builder()
+                            .baseUrl(BASE_URL)
+                            .client(getClient())
+                            .addConverterFactory(GsonConverterFactory.create(ApiJson.GSON))
+                            .build();
+
+                    result = RequestCoalescer.wrap(retrofit.create(ApiInterface.class));
+                    apiInterface = result;
+                }
+            }
         }
-        return apiInterface;
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,44 @@
+package com.president.lostandfound;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// Adds the session's Authorization header to every request, and on a 401 renews the
+// token once (shared with any other request failing at the same time) and retries.
+// Requests that already carry an Authorization header, like the refresh call itself,
+// are passed through untouched.
+public class AuthInterceptor implements Interceptor {
+    private final SessionStore session;
+
+    public AuthInterceptor(SessionStore session) {
+        this.session = session;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String authorization = session.getAuthorization();
+        if (request.header("Authorization") != null || authorization == null) {
+            return chain.proceed(request);
+        }
+
+        Response response = chain.proceed(withAuthorization(request, authorization));
+        if (response.code() != 401) {
+            return response;
+        }
+
+        String renewed = session.refresh(authorization);
+        if (renewed == null || renewed.equals(authorization)) {
+            return response;
+        }
+        response.close();
+        return chain.proceed(withAuthorization(request, renewed));
+    }
+
+    private static Request withAuthorization(Request request, String authorization) {
+        return request.newBuilder().header("Authorization", authorization).build();
+    }
+}
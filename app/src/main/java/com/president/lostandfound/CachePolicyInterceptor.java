@@ -0,0 +1,27 @@
+package com.president.lostandfound;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+// Network interceptor: responses the server sends without any freshness headers are
+// stored but marked no-cache, so every later read is a conditional GET that the server
+// can answer with 304 using the stored ETag / Last-Modified validators.
+public class CachePolicyInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+
+        if (!"GET".equals(chain.request().method())
+                || response.header("Cache-Control") != null
+                || response.header("Expires") != null) {
+            return response;
+        }
+
+        return response.newBuilder()
+                .header("Cache-Control", "private, no-cache")
+                .build();
+    }
+}
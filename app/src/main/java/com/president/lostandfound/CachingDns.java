@@ -0,0 +1,59 @@
+package com.president.lostandfound;
+
+import android.os.SystemClock;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Dns;
+
+// Keeps resolved addresses in process for a few minutes, so new connections (after the
+// pool let one go, or on a network change) skip the system resolver. If a lookup fails,
+// an expired entry is used rather than failing the request outright.
+public class CachingDns implements Dns {
+    private static final long TTL_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final Dns delegate;
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        final List<InetAddress> addresses;
+        final long expiresAt;
+
+        Entry(List<InetAddress> addresses, long expiresAt) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public CachingDns(Dns delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        Entry entry = cache.get(hostname);
+        long now = SystemClock.elapsedRealtime();
+        if (entry != null && entry.expiresAt > now) {
+            return entry.addresses;
+        }
+        try {
+            List<InetAddress> addresses = delegate.lookup(hostname);
+            cache.put(hostname, new Entry(addresses, now + TTL_MS));
+            return addresses;
+        } catch (UnknownHostException e) {
+            if (entry != null) {
+                return entry.addresses;
+            }
+            throw e;
+        }
+    }
+
+    // Addresses may differ on the new network.
+    public void clear() {
+        cache.clear();
+    }
+}
@@ -0,0 +1,20 @@
+package com.president.lostandfound;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.Objects;
+
+public class CommentDiffCallback extends DiffUtil.ItemCallback<ApiService.Comment> {
+
+    public static final CommentDiffCallback INSTANCE = new CommentDiffCallback();
+
+    @Override
+    public boolean areItemsTheSame(ApiService.Comment oldItem, ApiService.Comment newItem) {
+        return oldItem.id == newItem.id;
+    }
+
+    @Override
+    public boolean areContentsTheSame(ApiService.Comment oldItem, ApiService.Comment newItem) {
+        return Objects.equals(oldItem.updated_at, newItem.updated_at);
+    }
+}
@@ -0,0 +1,171 @@
+package com.president.lostandfound;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.gson.JsonParseException;
+
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.sse.EventSource;
+import okhttp3.sse.EventSourceListener;
+import okhttp3.sse.EventSources;
+
+// Server-sent comment events for one report. The connection is re-opened with jittered
+// exponential backoff and resumes from the last event id, so no comment is missed.
+public class CommentStream {
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final long READ_TIMEOUT_SECONDS = 60;
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "comment-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public interface Listener {
+        void onComment(ApiService.Comment comment);
+    }
+
+    private final OkHttpClient client;
+    private final HttpUrl url;
+    private final Executor callbackExecutor;
+    private final Listener listener;
+    private final Random random = new Random();
+
+    private EventSource eventSource;
+    private ScheduledFuture<?> pendingReconnect;
+    private String lastEventId;
+    private long backoffMs = INITIAL_BACKOFF_MS;
+    private volatile boolean stopped = true;
+
+    // Authorization comes from the app client's AuthInterceptor.
+    public CommentStream(int reportId, Listener listener) {
+        this(ApiService.getClient(), ApiService.getBaseUrl(), reportId,
+                new Handler(Looper.getMainLooper())::post, listener);
+    }
+
+    // The server pings every 25 seconds, so a silent minute means the connection is gone.
+    CommentStream(OkHttpClient client, HttpUrl baseUrl, int reportId,
+                  Executor callbackExecutor, Listener listener) {
+        this.client = client.newBuilder()
+                .cache(null)
+                .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .build();
+        this.url = baseUrl.newBuilder()
+                .addPathSegments("api/reports/" + reportId + "/comments/stream")
+                .build();
+        this.callbackExecutor = callbackExecutor;
+        this.listener = listener;
+    }
+
+    // Comments up to and including lastCommentId are already shown and will not be sent.
+    // 0 replays the thread from its first comment.
+    public synchronized void start(int lastCommentId) {
+        lastEventId = String.valueOf(lastCommentId);
+        stopped = false;
+        backoffMs = INITIAL_BACKOFF_MS;
+        connect();
+    }
+
+    public synchronized void stop() {
+        stopped = true;
+        if (pendingReconnect != null) {
+            pendingReconnect.cancel(false);
+            pendingReconnect = null;
+        }
+        if (eventSource != null) {
+            eventSource.cancel();
+            eventSource = null;
+        }
+    }
+
+    private synchronized void connect() {
+        pendingReconnect = null;
+        if (stopped || eventSource != null) {
+            return;
+        }
+        Request.Builder request = new Request.Builder()
+                .url(url)
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        eventSource = EventSources.createFactory(client).newEventSource(request.build(), new StreamListener());
+    }
+
+    private synchronized void reconnectLater(EventSource source) {
+        if (stopped || source != eventSource) {
+            return;
+        }
+        eventSource = null;
+        long delay = backoffMs / 2 + (long) (random.nextDouble() * backoffMs / 2);
+        backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        pendingReconnect = scheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private class StreamListener extends EventSourceListener {
+        @Override
+        public void onOpen(EventSource source, Response response) {
+            synchronized (CommentStream.this) {
+                backoffMs = INITIAL_BACKOFF_MS;
+            }
+        }
+
+        @Override
+        public void onEvent(EventSource source, String id, String type, String data) {
+            if (!"comment".equals(type)) {
+                return;
+            }
+            ApiService.Comment comment;
+            try {
+                comment = ApiJson.GSON.fromJson(data, ApiService.Comment.class);
+            } catch (JsonParseException e) {
+                return;
+            }
+            synchronized (CommentStream.this) {
+                if (source != eventSource) {
+                    return;
+                }
+                if (id != null) {
+                    lastEventId = id;
+                }
+            }
+            callbackExecutor.execute(() -> {
+                if (!stopped) {
+                    listener.onComment(comment);
+                }
+            });
+        }
+
+        @Override
+        public void onClosed(EventSource source) {
+            reconnectLater(source);
+        }
+
+        // Client errors such as a session that could not be renewed will not fix
+        // themselves by retrying.
+        @Override
+        public void onFailure(EventSource source, Throwable t, Response response) {
+            if (response != null && response.code() >= 400 && response.code() < 500) {
+                synchronized (CommentStream.this) {
+                    if (source == eventSource) {
+                        eventSource = null;
+                    }
+                }
+                return;
+            }
+            reconnectLater(source);
+        }
+    }
+}
@@ -1,15 +1,10 @@
 package com.president.lostandfound;
 
 import android.app.Activity;
-import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
-import android.util.Base64;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -25,15 +20,12 @@ import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.fragment.app.Fragment;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import okhttp3.MediaType;
 
 public class CreateFragment extends Fragment {
 
@@ -43,11 +35,42 @@ public class CreateFragment extends Fragment {
     private Button btnSelectImage, btnSubmit;
     private ProgressBar progressBar;
 
-    private String base64Image = null;
+    private File imageFile = null;
+    private MediaType imageType;
     private List<ApiService.MeetupPoint> meetupPoints = new ArrayList<>();
 
     private ActivityResultLauncher<Intent> imagePickerLauncher;
 
+    private final Outbox.Listener outboxListener = new Outbox.Listener() {
+        @Override
+        public void onUploadProgress(Outbox.Entry entry, int percent) {
+            if (Outbox.TYPE_REPORT.equals(entry.type) && getView() != null) {
+                progressBar.setVisibility(View.VISIBLE);
+                btnSubmit.setText("Uploading " + percent + "%");
+            }
+        }
+
+        @Override
+        public void onReportCreated(ApiService.Report report) {
+            if (getView() == null) {
+                return;
+            }
+            progressBar.setVisibility(View.GONE);
+            btnSubmit.setText("Create Report");
+            Toast.makeText(requireContext(), "Report created successfully!", Toast.LENGTH_SHORT).show();
+        }
+
+        @Override
+        public void onRejected(Outbox.Entry entry) {
+            if (!Outbox.TYPE_REPORT.equals(entry.type) || getView() == null) {
+                return;
+            }
+            progressBar.setVisibility(View.GONE);
+            btnSubmit.setText("Create Report");
+            Toast.makeText(requireContext(), "Failed to create report", Toast.LENGTH_SHORT).show();
+        }
+    };
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -79,78 +102,77 @@ public class CreateFragment extends Fragment {
         btnSubmit.setOnClickListener(v -> createReport());
 
         loadMeetupPoints();
+        Outbox.getInstance(requireContext()).addListener(outboxListener);
 
         return view;
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        Outbox.getInstance(requireContext()).removeListener(outboxListener);
+    }
+
     private void selectImage() {
         Intent intent = new Intent(Intent.ACTION_PICK, MediaStore.Images.Media.EXTERNAL_CONTENT_URI);
         imagePickerLauncher.launch(intent);
     }
 
     private void handleImageSelection(Uri imageUri) {
-        try {
-            InputStream inputStream = requireContext().getContentResolver().openInputStream(imageUri);
-            Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
-
-            Bitmap resizedBitmap = resizeBitmap(bitmap, 800, 800);
-
-            ivPreview.setImageBitmap(resizedBitmap);
-            ivPreview.setVisibility(View.VISIBLE);
+        btnSelectImage.setEnabled(false);
+        ImagePreparer.prepare(requireContext(), imageUri, ImagePreparer.REPORT_IMAGE, new ImagePreparer.Callback() {
+            @Override
+            public void onPrepared(ImagePreparer.Result result) {
+                if (getView() == null) {
+                    result.file.delete();
+                    return;
+                }
+                btnSelectImage.setEnabled(true);
+                ivPreview.setImageBitmap(result.preview);
+                ivPreview.setVisibility(View.VISIBLE);
 
-            base64Image = bitmapToBase64(resizedBitmap);
+                discardImageFile();
+                imageFile = result.file;
+                imageType = result.mediaType;
+            }
 
-        } catch (IOException e) {
-            Toast.makeText(requireContext(), "Failed to load image", Toast.LENGTH_SHORT).show();
-        }
+            @Override
+            public void onError(Exception e) {
+                if (getView() == null) {
+                    return;
+                }
+                btnSelectImage.setEnabled(true);
+                Toast.makeText(requireContext(), "Failed to load image", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
-    private Bitmap resizeBitmap(Bitmap bitmap, int maxWidth, int maxHeight) {
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-
-        float ratioBitmap = (float) width / (float) height;
-        float ratioMax = (float) maxWidth / (float) maxHeight;
-
-        int finalWidth = maxWidth;
-        int finalHeight = maxHeight;
-
-        if (ratioMax > ratioBitmap) {
-            finalWidth = (int) ((float) maxHeight * ratioBitmap);
-        } else {
-            finalHeight = (int) ((float) maxWidth / ratioBitmap);
+    private void discardImageFile() {
+        if (imageFile != null) {
+            imageFile.delete();
+            imageFile = null;
         }
-
-        return Bitmap.createScaledBitmap(bitmap, finalWidth, finalHeight, true);
-    }
-
-    private String bitmapToBase64(Bitmap bitmap) {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 80, byteArrayOutputStream);
-        byte[] byteArray = byteArrayOutputStream.toByteArray();
-        return "data:image/jpeg;base64," + Base64.encodeToString(byteArray, Base64.NO_WRAP);
     }
 
     private void loadMeetupPoints() {
-        SharedPreferences prefs = requireContext().getSharedPreferences("AppPrefs", Context.MODE_PRIVATE);
-        String token = "Bearer " + prefs.getString("token", null);
-
-        ApiService.getApiService().getMeetupPoints(token).enqueue(new Callback<List<ApiService.MeetupPoint>>() {
-            @Override
-            public void onResponse(Call<List<ApiService.MeetupPoint>> call, Response<List<ApiService.MeetupPoint>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    meetupPoints = response.body();
-                    setupSpinner();
-                } else {
-                    Toast.makeText(requireContext(), "Failed to load meetup points", Toast.LENGTH_SHORT).show();
-                }
-            }
+        ReportRepository.getInstance().getMeetupPoints(requireContext(),
+                new ReportRepository.Listener<List<ApiService.MeetupPoint>>() {
+                    @Override
+                    public void onResult(List<ApiService.MeetupPoint> result) {
+                        if (getView() == null || result == meetupPoints) {
+                            return;
+                        }
+                        meetupPoints = result;
+                        setupSpinner();
+                    }
 
-            @Override
-            public void onFailure(Call<List<ApiService.MeetupPoint>> call, Throwable t) {
-                Toast.makeText(requireContext(), "Failed to load meetup points", Toast.LENGTH_SHORT).show();
-            }
-        });
+                    @Override
+                    public void onError(Throwable t) {
+                        if (getView() != null && meetupPoints.isEmpty()) {
+                            Toast.makeText(requireContext(), "Failed to load meetup points", Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                });
     }
 
     private void setupSpinner() {
@@ -182,7 +204,7 @@ public class CreateFragment extends Fragment {
             return;
         }
 
-        if (base64Image == null) {
+        if (imageFile == null) {
             Toast.makeText(requireContext(), "Please select an image", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -195,44 +217,23 @@ public class CreateFragment extends Fragment {
         int selectedPosition = spinnerMeetupPoint.getSelectedItemPosition();
         int meetupPointId = meetupPoints.get(selectedPosition).id;
 
-        progressBar.setVisibility(View.VISIBLE);
-        btnSubmit.setEnabled(false);
-
-        SharedPreferences prefs = requireContext().getSharedPreferences("AppPrefs", Context.MODE_PRIVATE);
-        String token = "Bearer " + prefs.getString("token", null);
-
-        ApiService.CreateReportRequest request = new ApiService.CreateReportRequest(
-                title, description, base64Image, meetupPointId
-        );
-
-        ApiService.getApiService().createReport(token, request).enqueue(new Callback<ApiService.CreateReportResponse>() {
-            @Override
-            public void onResponse(Call<ApiService.CreateReportResponse> call, Response<ApiService.CreateReportResponse> response) {
-                progressBar.setVisibility(View.GONE);
-                btnSubmit.setEnabled(true);
-
-                if (response.isSuccessful()) {
-                    Toast.makeText(requireContext(), "Report created successfully!", Toast.LENGTH_SHORT).show();
-                    resetForm();
-                } else {
-                    Toast.makeText(requireContext(), "Failed to create report", Toast.LENGTH_SHORT).show();
-                }
-            }
-
-            @Override
-            public void onFailure(Call<ApiService.CreateReportResponse> call, Throwable t) {
-                progressBar.setVisibility(View.GONE);
-                btnSubmit.setEnabled(true);
-                Toast.makeText(requireContext(), "Failed to create report", Toast.LENGTH_SHORT).show();
-            }
-        });
+        try {
+            Outbox.getInstance(requireContext()).addReport(title, description, meetupPointId, imageFile, imageType);
+        } catch (IOException e) {
+            Toast.makeText(requireContext(), "Failed to create report", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        // The outbox owns the file now.
+        imageFile = null;
+        resetForm();
+        Toast.makeText(requireContext(), "Posting report...", Toast.LENGTH_SHORT).show();
     }
 
     private void resetForm() {
         etTitle.setText("");
         etDescription.setText("");
         ivPreview.setVisibility(View.GONE);
-        base64Image = null;
+        discardImageFile();
         if (spinnerMeetupPoint.getAdapter() != null && spinnerMeetupPoint.getAdapter().getCount() > 0) {
             spinnerMeetupPoint.setSelection(0);
         }
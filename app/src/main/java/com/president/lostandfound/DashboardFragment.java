@@ -1,12 +1,8 @@
 package com.president.lostandfound;
 
-import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
-import android.util.Base64;
+import android.os.SystemClock;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -19,20 +15,23 @@ import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-
 public class DashboardFragment extends Fragment {
 
     private RecyclerView recyclerView;
     private ProgressBar progressBar;
     private TextView tvEmpty;
     private ReportAdapter adapter;
-    private List<ApiService.Report> reports = new ArrayList<>();
+    private ReportPager pager;
+    private ReportPrefetcher prefetcher;
+    private long loadedAt;
+
+    private final Outbox.Listener outboxListener = new Outbox.Listener() {
+        @Override
+        public void onReportCreated(ApiService.Report report) {
+            loadedAt = SystemClock.elapsedRealtime();
+            pager.refresh();
+        }
+    };
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -42,64 +41,127 @@ public class DashboardFragment extends Fragment {
         progressBar = view.findViewById(R.id.progressBar);
         tvEmpty = view.findViewById(R.id.tvEmpty);
 
+        pager = new ReportPager(ReportStore.getInstance(requireContext()), new ReportPager.Listener() {
+            @Override
+            public void onItemRangeInserted(int start, int count) {
+                progressBar.setVisibility(View.GONE);
+                adapter.notifyItemRangeInserted(start, count);
+            }
+
+            @Override
+            public void onItemRangeChanged(int start, int count) {
+                adapter.notifyItemRangeChanged(start, count);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int start, int count) {
+                adapter.notifyItemRangeRemoved(start, count);
+            }
+
+            @Override
+            public void onItemMoved(int fromPosition, int toPosition) {
+                adapter.notifyItemMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onPageLoaded(int pageIndex) {
+                progressBar.setVisibility(View.GONE);
+                reportFullyDrawn();
+
+                if (pager.isEmpty()) {
+                    tvEmpty.setVisibility(View.VISIBLE);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                progressBar.setVisibility(View.GONE);
+                reportFullyDrawn();
+                Toast.makeText(requireContext(), "Failed to load reports", Toast.LENGTH_SHORT).show();
+            }
+        });
+
         recyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
-        adapter = new ReportAdapter(reports, report -> {
+        adapter = new ReportAdapter(pager, report -> {
             Intent intent = new Intent(requireContext(), ReportDetailActivity.class);
             intent.putExtra("report_id", report.id);
             startActivity(intent);
         });
         recyclerView.setAdapter(adapter);
+        prefetcher = ReportPrefetcher.attach(recyclerView);
+        Outbox.getInstance(requireContext()).addListener(outboxListener);
 
         loadReports();
 
         return view;
     }
 
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        if (hidden) {
+            prefetcher.cancel();
+        } else {
+            prefetcher.schedule();
+        }
+        if (!hidden && !ReportRepository.isFresh(loadedAt)) {
+            loadedAt = SystemClock.elapsedRealtime();
+            pager.refresh();
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        pager.cancel();
+        prefetcher.detach();
+        Outbox.getInstance(requireContext()).removeListener(outboxListener);
+    }
+
     private void loadReports() {
         progressBar.setVisibility(View.VISIBLE);
         tvEmpty.setVisibility(View.GONE);
+        loadedAt = SystemClock.elapsedRealtime();
 
-        SharedPreferences prefs = requireContext().getSharedPreferences("AppPrefs", Context.MODE_PRIVATE);
-        String token = "Bearer " + prefs.getString("token", null);
-
-        ApiService.getApiService().getReports(token).enqueue(new Callback<List<ApiService.Report>>() {
-            @Override
-            public void onResponse(Call<List<ApiService.Report>> call, Response<List<ApiService.Report>> response) {
-                progressBar.setVisibility(View.GONE);
-
-                if (response.isSuccessful() && response.body() != null) {
-                    reports.clear();
-                    reports.addAll(response.body());
-                    adapter.notifyDataSetChanged();
-
-                    if (reports.isEmpty()) {
-                        tvEmpty.setVisibility(View.VISIBLE);
-                    }
-                } else {
-                    Toast.makeText(requireContext(), "Failed to load reports", Toast.LENGTH_SHORT).show();
-                }
+        ReportStore.getInstance(requireContext()).loadLatestReports(ReportPager.PAGE_SIZE, cached -> {
+            if (getView() == null) {
+                return;
             }
-
-            @Override
-            public void onFailure(Call<List<ApiService.Report>> call, Throwable t) {
+            if (!cached.isEmpty()) {
                 progressBar.setVisibility(View.GONE);
-                Toast.makeText(requireContext(), "Failed to load reports", Toast.LENGTH_SHORT).show();
+                reportFullyDrawn();
             }
+            pager.start(cached);
         });
     }
 
+    // Marks startup as complete once the feed shows real content, cached or fresh; the
+    // time is logged as "Fully drawn" and only the first call per launch counts.
+    private void reportFullyDrawn() {
+        if (getActivity() != null) {
+            getActivity().reportFullyDrawn();
+        }
+    }
+
     private static class ReportAdapter extends RecyclerView.Adapter<ReportAdapter.ViewHolder> {
 
-        private List<ApiService.Report> reports;
+        private ReportPager pager;
         private OnReportClickListener listener;
 
         interface OnReportClickListener {
             void onReportClick(ApiService.Report report);
         }
 
-        ReportAdapter(List<ApiService.Report> reports, OnReportClickListener listener) {
-            this.reports = reports;
+        ReportAdapter(ReportPager pager, OnReportClickListener listener) {
+            this.pager = pager;
             this.listener = listener;
+            setHasStableIds(true);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            ApiService.Report report = pager.peek(position);
+            return report != null ? report.id : -1L - position;
         }
 
         @Override
@@ -111,32 +173,42 @@ public class DashboardFragment extends Fragment {
 
         @Override
         public void onBindViewHolder(ViewHolder holder, int position) {
-            ApiService.Report report = reports.get(position);
+            ApiService.Report report = pager.get(position);
+
+            if (report == null) {
+                holder.tvTitle.setText(null);
+                holder.tvDescription.setText(null);
+                holder.tvMeetupPoint.setText(null);
+                ImageLoader.getInstance().cancel(holder.ivImage);
+                holder.ivImage.setImageResource(android.R.color.darker_gray);
+                holder.itemView.setOnClickListener(null);
+                return;
+            }
 
             holder.tvTitle.setText(report.title);
             holder.tvDescription.setText(report.description);
             holder.tvMeetupPoint.setText(report.meetup_point_name);
 
             if (report.image != null && !report.image.isEmpty()) {
-                try {
-                    String base64Image = report.image;
-                    if (base64Image.contains(",")) {
-                        base64Image = base64Image.split(",")[1];
-                    }
-                    byte[] decodedString = Base64.decode(base64Image, Base64.DEFAULT);
-                    Bitmap decodedByte = BitmapFactory.decodeByteArray(decodedString, 0, decodedString.length);
-                    holder.ivImage.setImageBitmap(decodedByte);
-                } catch (Exception e) {
-                    holder.ivImage.setImageResource(android.R.color.darker_gray);
-                }
+                ImageLoader.getInstance().loadThumbnail(ImageLoader.key("report", report.id, report.image),
+                        ThumbnailStore.key("report", report.id, report.updated_at),
+                        report.image, holder.ivImage, android.R.color.darker_gray);
+            } else {
+                ImageLoader.getInstance().cancel(holder.ivImage);
+                holder.ivImage.setImageDrawable(null);
             }
 
             holder.itemView.setOnClickListener(v -> listener.onReportClick(report));
         }
 
+        @Override
+        public void onViewRecycled(ViewHolder holder) {
+            ImageLoader.getInstance().cancel(holder.ivImage);
+        }
+
         @Override
         public int getItemCount() {
-            return reports.size();
+            return pager.size();
         }
 
         static class ViewHolder extends RecyclerView.ViewHolder {
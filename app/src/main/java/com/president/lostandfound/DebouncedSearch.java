@@ -0,0 +1,98 @@
+package com.president.lostandfound;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+public class DebouncedSearch<T> {
+
+    public interface CallFactory<T> {
+        Call<T> create(String query);
+    }
+
+    public interface Listener<T> {
+        void onSearchStarted(String query);
+
+        void onResults(String query, Response<T> response);
+
+        void onError(String query, Throwable t);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final long debounceMillis;
+    private final CallFactory<T> callFactory;
+    private final Listener<T> listener;
+
+    private Runnable pending;
+    private Call<T> inFlight;
+    private String currentQuery;
+    private int generation;
+
+    public DebouncedSearch(long debounceMillis, CallFactory<T> callFactory, Listener<T> listener) {
+        this.debounceMillis = debounceMillis;
+        this.callFactory = callFactory;
+        this.listener = listener;
+    }
+
+    public void submit(String query) {
+        query = query.trim();
+        if (query.equals(currentQuery)) {
+            return;
+        }
+
+        cancel();
+        currentQuery = query;
+
+        int requestGeneration = generation;
+        String submitted = query;
+        pending = () -> execute(submitted, requestGeneration);
+        handler.postDelayed(pending, debounceMillis);
+    }
+
+    public void cancel() {
+        generation++;
+        currentQuery = null;
+        if (pending != null) {
+            handler.removeCallbacks(pending);
+            pending = null;
+        }
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+
+    private void execute(String query, int requestGeneration) {
+        pending = null;
+        listener.onSearchStarted(query);
+
+        Call<T> call = callFactory.create(query);
+        inFlight = call;
+        call.enqueue(new Callback<T>() {
+            @Override
+            public void onResponse(Call<T> call, Response<T> response) {
+                if (isStale(call, requestGeneration)) {
+                    return;
+                }
+                inFlight = null;
+                listener.onResults(query, response);
+            }
+
+            @Override
+            public void onFailure(Call<T> call, Throwable t) {
+                if (isStale(call, requestGeneration)) {
+                    return;
+                }
+                inFlight = null;
+                listener.onError(query, t);
+            }
+        });
+    }
+
+    private boolean isStale(Call<T> call, int requestGeneration) {
+        return call.isCanceled() || requestGeneration != generation;
+    }
+}
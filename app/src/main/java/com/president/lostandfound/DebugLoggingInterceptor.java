@@ -0,0 +1,56 @@
+package com.president.lostandfound;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+
+// Replacement for HttpLoggingInterceptor at BODY level: bodies are peeked up to
+// a fixed cap so large responses are neither buffered whole nor dumped into logcat.
+public class DebugLoggingInterceptor implements Interceptor {
+    private static final String TAG = "ApiService";
+    private static final long MAX_BODY_BYTES = 2048;
+
+    private static volatile boolean enabled;
+
+    public static void setEnabled(boolean enabled) {
+        DebugLoggingInterceptor.enabled = enabled;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!enabled) {
+            return chain.proceed(request);
+        }
+
+        Log.d(TAG, "--> " + request.method() + " " + request.url() + requestBody(request.body()));
+
+        long start = System.nanoTime();
+        Response response = chain.proceed(request);
+        long tookMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Peeking an event stream would block until the server sends enough events.
+        String contentType = response.header("Content-Type", "");
+        String body = contentType.startsWith("text/event-stream") ? "" : response.peekBody(MAX_BODY_BYTES).string();
+        Log.d(TAG, "<-- " + response.code() + " " + request.url() + " (" + tookMs + "ms) " + body
+                + (body.length() >= MAX_BODY_BYTES ? "..." : ""));
+        return response;
+    }
+
+    private static String requestBody(RequestBody body) throws IOException {
+        if (body == null || body.contentLength() < 0 || body.contentLength() > MAX_BODY_BYTES
+                || body.isOneShot()) {
+            return "";
+        }
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        return " " + buffer.readString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,333 @@
+package com.president.lostandfound;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Base64;
+import android.util.LruCache;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.ImageView;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ImageLoader {
+    private static final int DECODE_THREADS = 2;
+
+    private static ImageLoader instance;
+
+    private final LruCache<String, Bitmap> memoryCache;
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static synchronized ImageLoader getInstance() {
+        if (instance == null) {
+            instance = new ImageLoader();
+        }
+        return instance;
+    }
+
+    private ImageLoader() {
+        int cacheSizeKb = (int) (Runtime.getRuntime().maxMemory() / 1024 / 8);
+        memoryCache = new LruCache<String, Bitmap>(cacheSizeKb) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount() / 1024;
+            }
+        };
+        executor = Executors.newFixedThreadPool(DECODE_THREADS, runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "image-decode");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // The payload length and hash stand in for the image content, so a report whose
+    // picture is replaced gets a fresh cache entry even though its id stays the same.
+    public static String key(String scope, int id, String payload) {
+        return scope + ":" + id + ":" + payload.length() + ":" + payload.hashCode();
+    }
+
+    public void load(String key, String payload, ImageView target, int placeholderRes) {
+        load(key, payload, target, placeholderRes, Bitmap.Config.ARGB_8888);
+    }
+
+    public void loadThumbnail(String key, String payload, ImageView target, int placeholderRes) {
+        load(key, null, payload, target, placeholderRes, Bitmap.Config.RGB_565);
+    }
+
+    // diskKey (see ThumbnailStore.key) lets the decoded thumbnail be kept on disk and
+    // read back instead of the payload next time.
+    public void loadThumbnail(String key, String diskKey, String payload, ImageView target, int placeholderRes) {
+        load(key, diskKey, payload, target, placeholderRes, Bitmap.Config.RGB_565);
+    }
+
+    public void load(String key, String payload, ImageView target, int placeholderRes, Bitmap.Config config) {
+        load(key, null, payload, target, placeholderRes, config);
+    }
+
+    private void load(String key, String diskKey, String payload, ImageView target, int placeholderRes,
+                      Bitmap.Config config) {
+        cancel(target);
+
+        if (payload == null || payload.isEmpty()) {
+            showPlaceholder(target, placeholderRes);
+            return;
+        }
+
+        // The size is part of the cache key, so a view bound before its first layout waits
+        // for it rather than guessing a size that later binds of the same view won't match.
+        if (!hasKnownSize(target)) {
+            showPlaceholder(target, placeholderRes);
+            PendingLoad pending = new PendingLoad(key, diskKey, payload, target, placeholderRes, config);
+            target.setTag(R.id.image_loader_task, pending);
+            target.getViewTreeObserver().addOnPreDrawListener(pending);
+            return;
+        }
+        start(key, diskKey, payload, target, placeholderRes, config);
+    }
+
+    private void start(String key, String diskKey, String payload, ImageView target, int placeholderRes,
+                       Bitmap.Config config) {
+        int reqWidth = targetWidth(target);
+        int reqHeight = targetHeight(target, reqWidth);
+        key = key + ":" + reqWidth + "x" + reqHeight + ":" + config;
+
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            target.setImageBitmap(cached);
+            return;
+        }
+
+        showPlaceholder(target, placeholderRes);
+
+        DecodeTask task = new DecodeTask(key, diskKey, payload, target, placeholderRes, reqWidth, reqHeight, config);
+        target.setTag(R.id.image_loader_task, task);
+        task.future = executor.submit(task);
+    }
+
+    public void cancel(ImageView target) {
+        Object tag = target.getTag(R.id.image_loader_task);
+        if (tag instanceof PendingLoad) {
+            target.getViewTreeObserver().removeOnPreDrawListener((PendingLoad) tag);
+            target.setTag(R.id.image_loader_task, null);
+        } else if (tag instanceof DecodeTask) {
+            DecodeTask task = (DecodeTask) tag;
+            task.cancelled = true;
+            if (task.future != null) {
+                task.future.cancel(false);
+            }
+            target.setTag(R.id.image_loader_task, null);
+        }
+    }
+
+    public Bitmap getCached(String key) {
+        return memoryCache.get(key);
+    }
+
+    // Any size/config already decoded for the image, e.g. the list thumbnail, to show
+    // while a larger variant is being decoded.
+    public Bitmap getAnyCached(String key) {
+        String prefix = key + ":";
+        Bitmap best = null;
+        for (Map.Entry<String, Bitmap> entry : memoryCache.snapshot().entrySet()) {
+            if (entry.getKey().startsWith(prefix)
+                    && (best == null || entry.getValue().getWidth() > best.getWidth())) {
+                best = entry.getValue();
+            }
+        }
+        return best;
+    }
+
+    static byte[] decodeDataUri(String payload) {
+        byte[] ascii = payload.getBytes(StandardCharsets.US_ASCII);
+        int start = payload.indexOf(',') + 1;
+        return Base64.decode(ascii, start, ascii.length - start, Base64.DEFAULT);
+    }
+
+    static Bitmap decodeSampled(byte[] bytes, int reqWidth, int reqHeight, Bitmap.Config config) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        int sampleSize = calculateInSampleSize(options.outWidth, options.outHeight, reqWidth, reqHeight);
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = config;
+
+        // inSampleSize only halves, so finish the remaining downscale during decode
+        // instead of allocating a second bitmap with createScaledBitmap.
+        if (reqWidth > 0 && reqHeight > 0) {
+            int sampledWidth = options.outWidth / sampleSize;
+            int sampledHeight = options.outHeight / sampleSize;
+            float scale = Math.max((float) reqWidth / sampledWidth, (float) reqHeight / sampledHeight);
+            if (scale < 1f) {
+                options.inScaled = true;
+                options.inDensity = sampledWidth;
+                options.inTargetDensity = Math.max(1, Math.round(sampledWidth * scale));
+            }
+        }
+
+        Bitmap bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (bitmap != null && options.inScaled) {
+            bitmap.setDensity(Bitmap.DENSITY_NONE);
+        }
+        return bitmap;
+    }
+
+    static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int sampleSize = 1;
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            return sampleSize;
+        }
+        while (width / (sampleSize * 2) >= reqWidth && height / (sampleSize * 2) >= reqHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static boolean hasKnownSize(ImageView target) {
+        if (target.getWidth() > 0) {
+            return true;
+        }
+        ViewGroup.LayoutParams params = target.getLayoutParams();
+        return params != null && params.width > 0 && params.height > 0;
+    }
+
+    // Only reached without a measured width when the view was never laid out at all.
+    private static int targetWidth(ImageView target) {
+        if (target.getWidth() > 0) {
+            return target.getWidth();
+        }
+        ViewGroup.LayoutParams params = target.getLayoutParams();
+        if (params != null && params.width > 0) {
+            return params.width;
+        }
+        if (target.getParent() instanceof View && ((View) target.getParent()).getWidth() > 0) {
+            return ((View) target.getParent()).getWidth();
+        }
+        return target.getResources().getDisplayMetrics().widthPixels;
+    }
+
+    private static int targetHeight(ImageView target, int width) {
+        if (target.getHeight() > 0) {
+            return target.getHeight();
+        }
+        ViewGroup.LayoutParams params = target.getLayoutParams();
+        if (params != null && params.height > 0) {
+            return params.height;
+        }
+        return width;
+    }
+
+    private static void showPlaceholder(ImageView target, int placeholderRes) {
+        if (placeholderRes != 0) {
+            target.setImageResource(placeholderRes);
+        }
+    }
+
+    private class PendingLoad implements ViewTreeObserver.OnPreDrawListener {
+        final String key;
+        final String diskKey;
+        final String payload;
+        final ImageView target;
+        final int placeholderRes;
+        final Bitmap.Config config;
+
+        PendingLoad(String key, String diskKey, String payload, ImageView target, int placeholderRes,
+                    Bitmap.Config config) {
+            this.key = key;
+            this.diskKey = diskKey;
+            this.payload = payload;
+            this.target = target;
+            this.placeholderRes = placeholderRes;
+            this.config = config;
+        }
+
+        @Override
+        public boolean onPreDraw() {
+            target.getViewTreeObserver().removeOnPreDrawListener(this);
+            if (target.getTag(R.id.image_loader_task) == this) {
+                target.setTag(R.id.image_loader_task, null);
+                start(key, diskKey, payload, target, placeholderRes, config);
+            }
+            return true;
+        }
+    }
+
+    private class DecodeTask implements Runnable {
+        final String key;
+        final String diskKey;
+        final String payload;
+        final ImageView target;
+        final int placeholderRes;
+        final int reqWidth;
+        final int reqHeight;
+        final Bitmap.Config config;
+        volatile boolean cancelled;
+        Future<?> future;
+
+        DecodeTask(String key, String diskKey, String payload, ImageView target, int placeholderRes,
+                   int reqWidth, int reqHeight, Bitmap.Config config) {
+            this.key = key;
+            this.diskKey = diskKey;
+            this.payload = payload;
+            this.target = target;
+            this.placeholderRes = placeholderRes;
+            this.reqWidth = reqWidth;
+            this.reqHeight = reqHeight;
+            this.config = config;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+
+            ThumbnailStore thumbnails = diskKey != null ? ThumbnailStore.getInstance() : null;
+            Bitmap bitmap = thumbnails != null ? thumbnails.get(diskKey, config) : null;
+            if (bitmap == null) {
+                try {
+                    byte[] bytes = decodeDataUri(payload);
+                    bitmap = decodeSampled(bytes, reqWidth, reqHeight, config);
+                } catch (IllegalArgumentException e) {
+                    e.printStackTrace();
+                }
+                if (bitmap != null && thumbnails != null && !cancelled) {
+                    thumbnails.put(diskKey, bitmap);
+                }
+            }
+
+            if (bitmap != null) {
+                memoryCache.put(key, bitmap);
+            }
+
+            Bitmap result = bitmap;
+            mainHandler.post(() -> {
+                if (cancelled || target.getTag(R.id.image_loader_task) != this) {
+                    return;
+                }
+                target.setTag(R.id.image_loader_task, null);
+                if (result != null) {
+                    target.setImageBitmap(result);
+                } else {
+                    showPlaceholder(target, placeholderRes);
+                }
+            });
+        }
+    }
+}
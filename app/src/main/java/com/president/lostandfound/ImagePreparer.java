@@ -0,0 +1,252 @@
+package com.president.lostandfound;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import okhttp3.MediaType;
+
+// Turns a picked image into an upload-ready file off the main thread: the source is
+// decoded subsampled close to the target size, rotated per its EXIF orientation, and
+// encoded at the highest quality that fits the byte budget.
+public class ImagePreparer {
+    private static final int MIN_QUALITY = 40;
+    private static final int MAX_QUALITY = 90;
+    private static final float SHRINK_STEP = 0.75f;
+    private static final int MIN_DIMENSION = 320;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "image-prepare");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static final Options REPORT_IMAGE = new Options(1280, 300 * 1024, Format.JPEG);
+    public static final Options PROFILE_PICTURE = new Options(512, 100 * 1024, Format.JPEG);
+
+    public enum Format { JPEG, WEBP }
+
+    public static class Options {
+        final int maxDimension;
+        final long maxBytes;
+        final Format format;
+
+        public Options(int maxDimension, long maxBytes, Format format) {
+            this.maxDimension = maxDimension;
+            this.maxBytes = maxBytes;
+            this.format = format;
+        }
+    }
+
+    public static class Result {
+        public final File file;
+        public final MediaType mediaType;
+        public final Bitmap preview;
+
+        Result(File file, MediaType mediaType, Bitmap preview) {
+            this.file = file;
+            this.mediaType = mediaType;
+            this.preview = preview;
+        }
+    }
+
+    public interface Callback {
+        void onPrepared(Result result);
+
+        void onError(Exception e);
+    }
+
+    public static Future<?> prepare(Context context, Uri uri, Options options, Callback callback) {
+        Context appContext = context.getApplicationContext();
+        return executor.submit(() -> {
+            try {
+                Result result = prepare(appContext, uri, options);
+                mainHandler.post(() -> callback.onPrepared(result));
+            } catch (IOException | RuntimeException e) {
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    static Result prepare(Context context, Uri uri, Options options) throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = open(resolver, uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Not an image");
+        }
+
+        BitmapFactory.Options decode = new BitmapFactory.Options();
+        decode.inSampleSize = sampleSize(bounds.outWidth, bounds.outHeight, options.maxDimension);
+        Bitmap decoded;
+        try (InputStream in = open(resolver, uri)) {
+            decoded = BitmapFactory.decodeStream(in, null, decode);
+        }
+        if (decoded == null) {
+            throw new IOException("Failed to decode image");
+        }
+
+        int orientation;
+        try (InputStream in = open(resolver, uri)) {
+            orientation = new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        }
+
+        Bitmap bitmap = transform(decoded, orientation, options.maxDimension);
+        Bitmap.CompressFormat format = compressFormat(options.format);
+
+        while (true) {
+            int quality = findQuality(bitmap, format, options.maxBytes);
+            if (quality >= 0 || Math.max(bitmap.getWidth(), bitmap.getHeight()) <= MIN_DIMENSION) {
+                File file = ImageUploads.newUploadFile(context, options.format == Format.WEBP ? "webp" : "jpg");
+                try (OutputStream out = new FileOutputStream(file)) {
+                    bitmap.compress(format, Math.max(quality, MIN_QUALITY), out);
+                }
+                return new Result(file, mediaType(options.format), bitmap);
+            }
+            Bitmap smaller = Bitmap.createScaledBitmap(bitmap,
+                    Math.round(bitmap.getWidth() * SHRINK_STEP), Math.round(bitmap.getHeight() * SHRINK_STEP), true);
+            bitmap.recycle();
+            bitmap = smaller;
+        }
+    }
+
+    private static InputStream open(ContentResolver resolver, Uri uri) throws IOException {
+        InputStream in = resolver.openInputStream(uri);
+        if (in == null) {
+            throw new IOException("Cannot open " + uri);
+        }
+        return in;
+    }
+
+    // Largest power of two that still leaves the long side at or above maxDimension.
+    static int sampleSize(int width, int height, int maxDimension) {
+        int longSide = Math.max(width, height);
+        int sampleSize = 1;
+        while (longSide / (sampleSize * 2) >= maxDimension) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    // Applies the final downscale and the EXIF rotation/mirroring in a single copy.
+    private static Bitmap transform(Bitmap source, int orientation, int maxDimension) {
+        Matrix matrix = new Matrix();
+        float scale = Math.min(1f, (float) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        matrix.postScale(scale, scale);
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(-90);
+                break;
+            default:
+                break;
+        }
+        if (matrix.isIdentity()) {
+            return source;
+        }
+        Bitmap result = Bitmap.createBitmap(source, 0, 0, source.getWidth(), source.getHeight(), matrix, true);
+        if (result != source) {
+            source.recycle();
+        }
+        return result;
+    }
+
+    // Binary search for the highest quality whose output fits maxBytes; -1 if even the
+    // lowest quality is too large. Sizes are measured without keeping the encoded bytes.
+    private static int findQuality(Bitmap bitmap, Bitmap.CompressFormat format, long maxBytes) {
+        if (encodedSize(bitmap, format, MAX_QUALITY) <= maxBytes) {
+            return MAX_QUALITY;
+        }
+        int low = MIN_QUALITY;
+        int high = MAX_QUALITY - 1;
+        int best = -1;
+        while (low <= high) {
+            int quality = (low + high) >>> 1;
+            if (encodedSize(bitmap, format, quality) <= maxBytes) {
+                best = quality;
+                low = quality + 1;
+            } else {
+                high = quality - 1;
+            }
+        }
+        return best;
+    }
+
+    private static long encodedSize(Bitmap bitmap, Bitmap.CompressFormat format, int quality) {
+        CountingOutputStream out = new CountingOutputStream();
+        bitmap.compress(format, quality, out);
+        return out.count;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat compressFormat(Format format) {
+        if (format == Format.WEBP) {
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                    ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+        }
+        return Bitmap.CompressFormat.JPEG;
+    }
+
+    private static MediaType mediaType(Format format) {
+        return format == Format.WEBP ? MediaType.get("image/webp") : ImageUploads.JPEG;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
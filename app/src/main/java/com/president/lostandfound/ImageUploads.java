@@ -0,0 +1,29 @@
+package com.president.lostandfound;
+
+import android.content.Context;
+
+import java.io.File;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+
+public class ImageUploads {
+    public static final MediaType JPEG = MediaType.get("image/jpeg");
+    private static final MediaType TEXT = MediaType.get("text/plain; charset=utf-8");
+
+    public static File newUploadFile(Context context, String extension) {
+        File dir = new File(context.getCacheDir(), "uploads");
+        dir.mkdirs();
+        return new File(dir, "upload-" + System.currentTimeMillis() + "." + extension);
+    }
+
+    public static MultipartBody.Part imagePart(String name, File file, MediaType type,
+                                               ProgressRequestBody.Listener listener) {
+        return MultipartBody.Part.createFormData(name, file.getName(), new ProgressRequestBody(file, type, listener));
+    }
+
+    public static RequestBody textPart(String value) {
+        return RequestBody.create(value, TEXT);
+    }
+}
@@ -0,0 +1,40 @@
+package com.president.lostandfound;
+
+import android.util.Base64;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+
+// Reads claims from a JWT without verifying it; the server still does that. Only used
+// to decide locally whether a stored token is worth trying.
+public class Jwt {
+    // Seconds of clock skew tolerated against the device clock.
+    private static final long LEEWAY_SECONDS = 60;
+    // How long after expiry the server still renews a token (TOKEN_REFRESH_WINDOW_SECONDS).
+    private static final long REFRESH_WINDOW_SECONDS = 7 * 24 * 60 * 60;
+
+    // Expiry in epoch seconds, or 0 if the token has none or can't be read.
+    public static long expiresAt(String token) {
+        if (token == null) {
+            return 0;
+        }
+        String[] parts = token.split("\\.");
+        if (parts.length != 3) {
+            return 0;
+        }
+        try {
+            byte[] payload = Base64.decode(parts[1], Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP);
+            return new JSONObject(new String(payload, StandardCharsets.UTF_8)).optLong("exp", 0);
+        } catch (IllegalArgumentException | JSONException e) {
+            return 0;
+        }
+    }
+
+    // True while the token is either still valid or can be exchanged for a new one.
+    public static boolean isRefreshable(String token) {
+        long expiresAt = expiresAt(token);
+        return expiresAt > 0 && expiresAt + REFRESH_WINDOW_SECONDS > System.currentTimeMillis() / 1000 + LEEWAY_SECONDS;
+    }
+}
@@ -1,7 +1,6 @@
 package com.president.lostandfound;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.ProgressBar;
@@ -27,6 +26,16 @@ public class LoginActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+
+        // A stored session that is still valid or can be renewed goes straight to the
+        // dashboard without inflating the form; AuthInterceptor renews it on the first 401.
+        if (SessionStore.getInstance(this).hasUsableToken()) {
+            startActivity(new Intent(this, MainActivity.class));
+            overridePendingTransition(0, 0);
+            finish();
+            return;
+        }
+
         setContentView(R.layout.activity_login);
 
         emailInput = findViewById(R.id.emailInput);
@@ -61,7 +70,7 @@ public class LoginActivity extends AppCompatActivity {
                 setLoading(false);
                 if (response.isSuccessful() && response.body() != null) {
                     ApiService.LoginResponse loginResponse = response.body();
-                    saveToken(loginResponse.token);
+                    SessionStore.getInstance(LoginActivity.this).setToken(loginResponse.token);
                     Toast.makeText(LoginActivity.this, "Login successful", Toast.LENGTH_SHORT).show();
                     startActivity(new Intent(LoginActivity.this, MainActivity.class));
                     finish();
@@ -78,11 +87,6 @@ public class LoginActivity extends AppCompatActivity {
         });
     }
 
-    private void saveToken(String token) {
-        SharedPreferences prefs = getSharedPreferences("AppPrefs", MODE_PRIVATE);
-        prefs.edit().putString("token", token).apply();
-    }
-
     private void setLoading(boolean isLoading) {
         if (isLoading) {
             progressBar.setVisibility(View.VISIBLE);
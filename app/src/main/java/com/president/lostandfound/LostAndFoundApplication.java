@@ -0,0 +1,80 @@
+package com.president.lostandfound;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.Toast;
+
+public class LostAndFoundApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Request and response bodies only go to logcat from debuggable builds.
+        DebugLoggingInterceptor.setEnabled((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0);
+        ApiService.init(this);
+        ThumbnailStore.init(this);
+        warmUp();
+
+        SessionStore.getInstance(this).setListener(() -> {
+            Toast.makeText(this, "Session expired, please log in again", Toast.LENGTH_SHORT).show();
+            signOut(this);
+        });
+
+        // Anything queued while offline (or left over from a previous run) is sent as
+        // soon as a network is available again.
+        Outbox outbox = Outbox.getInstance(this);
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        ConnectivityManager connectivity = getSystemService(ConnectivityManager.class);
+        connectivity.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+            private Network current;
+
+            @Override
+            public void onAvailable(Network network) {
+                // The first call reports the network the app started on.
+                if (current != null && !current.equals(network)) {
+                    ApiService.onNetworkChanged();
+                }
+                current = network;
+                mainHandler.post(() -> outbox.drain(true));
+            }
+        });
+        outbox.drain(false);
+    }
+
+    // Runs while LoginActivity and MainActivity are being created, so building Retrofit
+    // and the OkHttp client, and connecting to the API, are off the dashboard's first
+    // request.
+    private void warmUp() {
+        if (!SessionStore.getInstance(this).hasUsableToken()) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            ApiService.getApiService();
+            ApiService.warmConnection();
+        }, "startup-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Forgets the session and everything cached for it, and returns to the login screen.
+    public static void signOut(Context context) {
+        context.getSharedPreferences("AppPrefs", MODE_PRIVATE).edit().clear().apply();
+        SessionStore.getInstance(context).clear();
+        ReportStore.getInstance(context).runInBackground(() -> {
+            ApiService.clearCache();
+            ThumbnailStore.getInstance().clear();
+        });
+        ReportRepository.getInstance().clear();
+        Outbox.getInstance(context).clear();
+
+        Intent intent = new Intent(context, LoginActivity.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        context.startActivity(intent);
+    }
+}
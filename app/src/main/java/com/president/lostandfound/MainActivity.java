@@ -4,11 +4,22 @@ import android.os.Bundle;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.fragment.app.FragmentTransaction;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 public class MainActivity extends AppCompatActivity {
 
+    private static final String TAG_DASHBOARD = "dashboard";
+    private static final String TAG_SEARCH = "search";
+    private static final String TAG_CREATE = "create";
+    private static final String TAG_PROFILE = "profile";
+    private static final String[] TAB_TAGS = {TAG_DASHBOARD, TAG_SEARCH, TAG_CREATE, TAG_PROFILE};
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -16,32 +27,65 @@ public class MainActivity extends AppCompatActivity {
 
         BottomNavigationView bottomNav = findViewById(R.id.bottomNavigation);
         bottomNav.setOnItemSelectedListener(item -> {
-            Fragment selectedFragment = null;
             int itemId = item.getItemId();
 
             if (itemId == R.id.nav_dashboard) {
-                selectedFragment = new DashboardFragment();
+                showTab(TAG_DASHBOARD);
             } else if (itemId == R.id.nav_search) {
-                selectedFragment = new SearchFragment();
+                showTab(TAG_SEARCH);
             } else if (itemId == R.id.nav_create) {
-                selectedFragment = new CreateFragment();
+                showTab(TAG_CREATE);
             } else if (itemId == R.id.nav_profile) {
-                selectedFragment = new ProfileFragment();
-            }
-
-            if (selectedFragment != null) {
-                getSupportFragmentManager().beginTransaction()
-                        .replace(R.id.fragmentContainer, selectedFragment)
-                        .commit();
+                showTab(TAG_PROFILE);
             }
 
             return true;
         });
 
         if (savedInstanceState == null) {
-            getSupportFragmentManager().beginTransaction()
-                    .replace(R.id.fragmentContainer, new DashboardFragment())
-                    .commit();
+            showTab(TAG_DASHBOARD);
+        }
+    }
+
+    // Tabs are created once and then only shown or hidden, so their views and loaded
+    // data survive switching; the FragmentManager restores them after recreation.
+    private void showTab(String tag) {
+        FragmentManager fragmentManager = getSupportFragmentManager();
+        FragmentTransaction transaction = fragmentManager.beginTransaction();
+
+        for (String tabTag : TAB_TAGS) {
+            Fragment fragment = fragmentManager.findFragmentByTag(tabTag);
+            if (fragment != null && !tabTag.equals(tag) && !fragment.isHidden()) {
+                transaction.hide(fragment);
+            }
         }
+
+        Fragment selected = fragmentManager.findFragmentByTag(tag);
+        if (selected == null) {
+            transaction.add(R.id.fragmentContainer, createTab(tag), tag);
+        } else {
+            transaction.show(selected);
+        }
+
+        transaction.commit();
+    }
+
+    private Fragment createTab(String tag) {
+        switch (tag) {
+            case TAG_SEARCH:
+                return new SearchFragment();
+            case TAG_CREATE:
+                return new CreateFragment();
+            case TAG_PROFILE:
+                return new ProfileFragment();
+            default:
+                return new DashboardFragment();
+        }
+    }
+
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        NetworkMetrics.getInstance().dump(prefix, writer);
     }
 }
\ No newline at end of file
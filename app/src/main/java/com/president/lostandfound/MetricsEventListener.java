@@ -0,0 +1,121 @@
+package com.president.lostandfound;
+
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+public class MetricsEventListener extends EventListener {
+
+    public static final Factory FACTORY = call -> new MetricsEventListener();
+
+    private final NetworkMetrics.CallTiming timing = new NetworkMetrics.CallTiming();
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long requestStart;
+
+    @Override
+    public void callStart(Call call) {
+        callStart = SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStart = SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        timing.dnsMillis = SystemClock.elapsedRealtime() - dnsStart;
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStart = SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        timing.connectMillis = SystemClock.elapsedRealtime() - connectStart;
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        requestStart = SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        timing.requestBytes = byteCount;
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        timing.timeToFirstByteMillis = SystemClock.elapsedRealtime() - requestStart;
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        if (response.code() >= 400) {
+            timing.failed = true;
+        }
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        timing.responseBytes = byteCount;
+    }
+
+    @Override
+    public void cacheHit(Call call, Response response) {
+        timing.cacheHit = true;
+    }
+
+    // A 304 from revalidation: the cached body was used, but only after a round trip.
+    @Override
+    public void cacheConditionalHit(Call call, Response cachedResponseWithNetwork) {
+        timing.conditionalCacheHit = true;
+    }
+
+    @Override
+    public void cacheMiss(Call call) {
+        timing.cacheMiss = true;
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        finish(call);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        timing.failed = true;
+        finish(call);
+    }
+
+    private void finish(Call call) {
+        timing.totalMillis = SystemClock.elapsedRealtime() - callStart;
+        NetworkMetrics.getInstance().record(endpoint(call.request()), timing);
+    }
+
+    // Numeric path segments are collapsed so /api/reports/12 and /api/reports/13
+    // report as the same endpoint.
+    static String endpoint(Request request) {
+        StringBuilder path = new StringBuilder();
+        for (String segment : request.url().pathSegments()) {
+            path.append('/');
+            path.append(segment.matches("\\d+") ? "{id}" : segment);
+        }
+        return request.method() + " " + path;
+    }
+}
@@ -0,0 +1,202 @@
+package com.president.lostandfound;
+
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class NetworkMetrics {
+    private static final long[] BUCKET_BOUNDS_MS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private static final NetworkMetrics instance = new NetworkMetrics();
+
+    private final Map<String, EndpointStats> endpoints = new TreeMap<>();
+
+    public static NetworkMetrics getInstance() {
+        return instance;
+    }
+
+    public static class Histogram {
+        final long[] counts = new long[BUCKET_BOUNDS_MS.length + 1];
+        long samples;
+        long totalMillis;
+        long maxMillis;
+
+        void record(long millis) {
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MS.length && millis > BUCKET_BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+            counts[bucket]++;
+            samples++;
+            totalMillis += millis;
+            maxMillis = Math.max(maxMillis, millis);
+        }
+
+        // Upper bound of the bucket holding the requested percentile.
+        public long percentile(double percentile) {
+            if (samples == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(samples * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i < BUCKET_BOUNDS_MS.length ? BUCKET_BOUNDS_MS[i] : maxMillis;
+                }
+            }
+            return maxMillis;
+        }
+
+        public long mean() {
+            return samples == 0 ? 0 : totalMillis / samples;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        Histogram copy() {
+            Histogram copy = new Histogram();
+            System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+            copy.samples = samples;
+            copy.totalMillis = totalMillis;
+            copy.maxMillis = maxMillis;
+            return copy;
+        }
+    }
+
+    public static class EndpointStats {
+        public long calls;
+        public long errors;
+        public long cacheHits;
+        public long conditionalCacheHits;
+        public long cacheMisses;
+        public long requestBytes;
+        public long responseBytes;
+        public final Histogram dns;
+        public final Histogram connect;
+        public final Histogram timeToFirstByte;
+        public final Histogram total;
+
+        EndpointStats() {
+            this(new Histogram(), new Histogram(), new Histogram(), new Histogram());
+        }
+
+        private EndpointStats(Histogram dns, Histogram connect, Histogram timeToFirstByte, Histogram total) {
+            this.dns = dns;
+            this.connect = connect;
+            this.timeToFirstByte = timeToFirstByte;
+            this.total = total;
+        }
+
+        public double errorRate() {
+            return calls == 0 ? 0 : (double) errors / calls;
+        }
+
+        EndpointStats copy() {
+            EndpointStats copy = new EndpointStats(dns.copy(), connect.copy(), timeToFirstByte.copy(), total.copy());
+            copy.calls = calls;
+            copy.errors = errors;
+            copy.cacheHits = cacheHits;
+            copy.conditionalCacheHits = conditionalCacheHits;
+            copy.cacheMisses = cacheMisses;
+            copy.requestBytes = requestBytes;
+            copy.responseBytes = responseBytes;
+            return copy;
+        }
+    }
+
+    static class CallTiming {
+        long dnsMillis = -1;
+        long connectMillis = -1;
+        long timeToFirstByteMillis = -1;
+        long totalMillis;
+        long requestBytes;
+        long responseBytes;
+        boolean failed;
+        boolean cacheHit;
+        boolean conditionalCacheHit;
+        boolean cacheMiss;
+    }
+
+    synchronized void record(String endpoint, CallTiming timing) {
+        EndpointStats stats = endpoints.get(endpoint);
+        if (stats == null) {
+            stats = new EndpointStats();
+            endpoints.put(endpoint, stats);
+        }
+
+        stats.calls++;
+        if (timing.failed) {
+            stats.errors++;
+        }
+        if (timing.cacheHit) {
+            stats.cacheHits++;
+        }
+        if (timing.conditionalCacheHit) {
+            stats.conditionalCacheHits++;
+        }
+        if (timing.cacheMiss) {
+            stats.cacheMisses++;
+        }
+        stats.requestBytes += timing.requestBytes;
+        stats.responseBytes += timing.responseBytes;
+        if (timing.dnsMillis >= 0) {
+            stats.dns.record(timing.dnsMillis);
+        }
+        if (timing.connectMillis >= 0) {
+            stats.connect.record(timing.connectMillis);
+        }
+        if (timing.timeToFirstByteMillis >= 0) {
+            stats.timeToFirstByte.record(timing.timeToFirstByteMillis);
+        }
+        stats.total.record(timing.totalMillis);
+    }
+
+    public synchronized Map<String, EndpointStats> snapshot() {
+        Map<String, EndpointStats> snapshot = new LinkedHashMap<>();
+        for (Map.Entry<String, EndpointStats> entry : endpoints.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().copy());
+        }
+        return snapshot;
+    }
+
+    public synchronized void reset() {
+        endpoints.clear();
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Network metrics (ms, bucketed p50/p90/p99):");
+        for (Map.Entry<String, EndpointStats> entry : snapshot().entrySet()) {
+            EndpointStats stats = entry.getValue();
+            writer.println(prefix + "  " + entry.getKey()
+                    + " calls=" + stats.calls
+                    + " errors=" + stats.errors
+                    + String.format(" (%.1f%%)", stats.errorRate() * 100)
+                    + " cacheHits=" + stats.cacheHits
+                    + " conditionalHits=" + stats.conditionalCacheHits
+                    + " cacheMisses=" + stats.cacheMisses
+                    + " sent=" + stats.requestBytes + "B"
+                    + " received=" + stats.responseBytes + "B");
+            dumpHistogram(prefix + "    ", "total", stats.total, writer);
+            dumpHistogram(prefix + "    ", "ttfb", stats.timeToFirstByte, writer);
+            dumpHistogram(prefix + "    ", "connect", stats.connect, writer);
+            dumpHistogram(prefix + "    ", "dns", stats.dns, writer);
+        }
+    }
+
+    private static void dumpHistogram(String prefix, String name, Histogram histogram, PrintWriter writer) {
+        if (histogram.getSamples() == 0) {
+            return;
+        }
+        writer.println(prefix + name
+                + " n=" + histogram.getSamples()
+                + " mean=" + histogram.mean()
+                + " p50=" + histogram.percentile(50)
+                + " p90=" + histogram.percentile(90)
+                + " p99=" + histogram.percentile(99)
+                + " max=" + histogram.maxMillis);
+    }
+}
@@ -0,0 +1,372 @@
+package com.president.lostandfound;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+// Durable queue of user writes (new reports, comments, profile updates). Entries are
+// stored before anything is sent and drained strictly in order; each carries an
+// idempotency key so a request whose response was lost is not applied twice.
+// Consecutive comments at the head of the queue go out as one batch request.
+public class Outbox {
+    public static final String TYPE_REPORT = "report";
+    public static final String TYPE_COMMENT = "comment";
+    public static final String TYPE_PROFILE = "profile";
+
+    private static final int MAX_COMMENT_BATCH = 20;
+    private static final long INITIAL_BACKOFF_MS = 2000;
+    private static final long MAX_BACKOFF_MS = 10 * 60 * 1000;
+    // Roughly an hour of retries; after that the entry is given up so it cannot hold
+    // back everything queued behind it.
+    private static final int MAX_ATTEMPTS = 12;
+
+    private static Outbox instance;
+
+    private final Context context;
+    private final ReportStore store;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new ArrayList<>();
+    private final Runnable scheduledDrain = () -> drain(false);
+    private boolean draining;
+
+    public static class Entry {
+        public long id;
+        public String type;
+        public String idempotencyKey;
+        public int reportId;
+        public int meetupPointId;
+        public String title;
+        public String body;
+        public String filePath;
+        public String mediaType;
+        public int attempts;
+        public long nextAttemptAt;
+    }
+
+    public interface Listener {
+        default void onReportCreated(ApiService.Report report) {}
+
+        default void onCommentAdded(ApiService.Comment comment) {}
+
+        default void onProfileUpdated(ApiService.User user) {}
+
+        default void onRejected(Entry entry) {}
+
+        default void onUploadProgress(Entry entry, int percent) {}
+    }
+
+    public static synchronized Outbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new Outbox(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private Outbox(Context context) {
+        this.context = context;
+        this.store = ReportStore.getInstance(context);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void addReport(String title, String description, int meetupPointId, File image, MediaType type) throws IOException {
+        Entry entry = new Entry();
+        entry.type = TYPE_REPORT;
+        entry.title = title;
+        entry.body = description;
+        entry.meetupPointId = meetupPointId;
+        entry.filePath = keep(image).getPath();
+        entry.mediaType = type.toString();
+        add(entry);
+    }
+
+    public void addComment(int reportId, String comment) {
+        Entry entry = new Entry();
+        entry.type = TYPE_COMMENT;
+        entry.reportId = reportId;
+        entry.body = comment;
+        add(entry);
+    }
+
+    public void updateProfile(String name, File image, MediaType type) throws IOException {
+        Entry entry = new Entry();
+        entry.type = TYPE_PROFILE;
+        entry.body = name;
+        if (image != null) {
+            entry.filePath = keep(image).getPath();
+            entry.mediaType = type.toString();
+        }
+        add(entry);
+    }
+
+    // Drops everything unsent, e.g. on logout.
+    public void clear() {
+        handler.removeCallbacks(scheduledDrain);
+        store.loadOutbox(entries -> {
+            for (Entry entry : entries) {
+                deleteFile(entry);
+            }
+        });
+        store.clearOutbox();
+    }
+
+    // force skips the backoff wait of the head entry; used when connectivity returns.
+    public void drain(boolean force) {
+        if (draining) {
+            return;
+        }
+        handler.removeCallbacks(scheduledDrain);
+        draining = true;
+        store.loadOutbox(entries -> {
+            if (entries.isEmpty()) {
+                draining = false;
+                return;
+            }
+            Entry head = entries.get(0);
+            long wait = head.nextAttemptAt - System.currentTimeMillis();
+            if (!force && wait > 0) {
+                draining = false;
+                handler.postDelayed(scheduledDrain, wait);
+                return;
+            }
+
+            if (SessionStore.getInstance(context).getAuthorization() == null) {
+                draining = false;
+                return;
+            }
+            // The copy under files/ can still be lost, e.g. to a restore from backup.
+            if (head.filePath != null && !new File(head.filePath).isFile()) {
+                rejected(head);
+                next();
+                return;
+            }
+            if (TYPE_COMMENT.equals(head.type)) {
+                List<Entry> batch = new ArrayList<>();
+                for (Entry entry : entries) {
+                    if (!TYPE_COMMENT.equals(entry.type) || batch.size() == MAX_COMMENT_BATCH) {
+                        break;
+                    }
+                    batch.add(entry);
+                }
+                sendComments(batch);
+            } else if (TYPE_REPORT.equals(head.type)) {
+                sendReport(head);
+            } else {
+                sendProfile(head);
+            }
+        });
+    }
+
+    private void add(Entry entry) {
+        entry.idempotencyKey = UUID.randomUUID().toString();
+        store.addOutboxEntry(entry, id -> {
+            if (id < 0) {
+                rejected(entry);
+                return;
+            }
+            entry.id = id;
+            drain(true);
+        });
+    }
+
+    private void sendReport(Entry entry) {
+        File file = new File(entry.filePath);
+        MultipartBody.Part image = ImageUploads.imagePart("image", file, MediaType.get(entry.mediaType),
+                percent -> progress(entry, percent));
+        ApiService.getApiService().createReport(entry.idempotencyKey, ImageUploads.textPart(entry.title),
+                ImageUploads.textPart(entry.body), ImageUploads.textPart(String.valueOf(entry.meetupPointId)), image)
+                .enqueue(new Callback<ApiService.CreateReportResponse>() {
+                    @Override
+                    public void onResponse(Call<ApiService.CreateReportResponse> call, Response<ApiService.CreateReportResponse> response) {
+                        if (response.isSuccessful() && response.body() != null) {
+                            completed(entry);
+                            for (Listener listener : new ArrayList<>(listeners)) {
+                                listener.onReportCreated(response.body().report);
+                            }
+                            next();
+                        } else {
+                            failed(singletonList(entry), response.code());
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Call<ApiService.CreateReportResponse> call, Throwable t) {
+                        failed(singletonList(entry), 0);
+                    }
+                });
+    }
+
+    private void sendProfile(Entry entry) {
+        MultipartBody.Part picture = entry.filePath == null ? null
+                : ImageUploads.imagePart("profile_picture", new File(entry.filePath), MediaType.get(entry.mediaType),
+                        percent -> progress(entry, percent));
+        ApiService.getApiService().updateProfile(entry.idempotencyKey, ImageUploads.textPart(entry.body), picture)
+                .enqueue(new Callback<ApiService.UpdateProfileResponse>() {
+                    @Override
+                    public void onResponse(Call<ApiService.UpdateProfileResponse> call, Response<ApiService.UpdateProfileResponse> response) {
+                        if (response.isSuccessful() && response.body() != null) {
+                            completed(entry);
+                            for (Listener listener : new ArrayList<>(listeners)) {
+                                listener.onProfileUpdated(response.body().user);
+                            }
+                            next();
+                        } else {
+                            failed(singletonList(entry), response.code());
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Call<ApiService.UpdateProfileResponse> call, Throwable t) {
+                        failed(singletonList(entry), 0);
+                    }
+                });
+    }
+
+    private void sendComments(List<Entry> batch) {
+        List<ApiService.CommentBatchItem> items = new ArrayList<>();
+        for (Entry entry : batch) {
+            items.add(new ApiService.CommentBatchItem(entry.reportId, entry.body, entry.idempotencyKey));
+        }
+        ApiService.getApiService().addComments(new ApiService.CommentBatchRequest(items))
+                .enqueue(new Callback<ApiService.CommentBatchResponse>() {
+                    @Override
+                    public void onResponse(Call<ApiService.CommentBatchResponse> call, Response<ApiService.CommentBatchResponse> response) {
+                        if (!response.isSuccessful() || response.body() == null || response.body().results == null
+                                || response.body().results.size() != batch.size()) {
+                            failed(batch, response.code());
+                            return;
+                        }
+                        List<Entry> retry = new ArrayList<>();
+                        for (int i = 0; i < batch.size(); i++) {
+                            ApiService.CommentBatchResult result = response.body().results.get(i);
+                            if (result.status == 201 && result.comment != null) {
+                                completed(batch.get(i));
+                                for (Listener listener : new ArrayList<>(listeners)) {
+                                    listener.onCommentAdded(result.comment);
+                                }
+                            } else if (isPermanent(result.status)) {
+                                rejected(batch.get(i));
+                            } else {
+                                retry.add(batch.get(i));
+                            }
+                        }
+                        if (retry.isEmpty()) {
+                            next();
+                        } else {
+                            failed(retry, 0);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Call<ApiService.CommentBatchResponse> call, Throwable t) {
+                        failed(batch, 0);
+                    }
+                });
+    }
+
+    private void completed(Entry entry) {
+        store.deleteOutboxEntries(singletonList(entry));
+        deleteFile(entry);
+    }
+
+    private void rejected(Entry entry) {
+        completed(entry);
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onRejected(entry);
+        }
+    }
+
+    private void progress(Entry entry, int percent) {
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onUploadProgress(entry, percent);
+        }
+    }
+
+    private void next() {
+        draining = false;
+        drain(false);
+    }
+
+    // statusCode 0 means no response at all.
+    private void failed(List<Entry> entries, int statusCode) {
+        if (isPermanent(statusCode)) {
+            for (Entry entry : entries) {
+                rejected(entry);
+            }
+            next();
+            return;
+        }
+        List<Entry> retry = new ArrayList<>();
+        for (Entry entry : entries) {
+            entry.attempts++;
+            if (entry.attempts >= MAX_ATTEMPTS) {
+                rejected(entry);
+            } else {
+                entry.nextAttemptAt = System.currentTimeMillis() + backoff(entry.attempts);
+                retry.add(entry);
+            }
+        }
+        if (retry.isEmpty()) {
+            next();
+            return;
+        }
+        store.updateOutboxAttempts(retry);
+        draining = false;
+        handler.postDelayed(scheduledDrain, backoff(retry.get(0).attempts));
+    }
+
+    // Requests the server will never accept as sent. Auth failures are retried since the
+    // user may sign in again; 408, 409 (still in progress) and 429 are transient.
+    private static boolean isPermanent(int statusCode) {
+        return statusCode >= 400 && statusCode < 500 && statusCode != 401 && statusCode != 403
+                && statusCode != 408 && statusCode != 409 && statusCode != 429;
+    }
+
+    private static long backoff(int attempts) {
+        return Math.min(INITIAL_BACKOFF_MS << Math.min(attempts - 1, 20), MAX_BACKOFF_MS);
+    }
+
+    // Prepared images live in the cache directory, which the system may clear while the
+    // entry waits; the outbox keeps its own copy under files/.
+    private File keep(File image) throws IOException {
+        File dir = new File(context.getFilesDir(), "outbox");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File kept = new File(dir, image.getName());
+        if (!image.renameTo(kept)) {
+            throw new IOException("Cannot move " + image);
+        }
+        return kept;
+    }
+
+    private static void deleteFile(Entry entry) {
+        if (entry.filePath != null) {
+            new File(entry.filePath).delete();
+        }
+    }
+
+    private static List<Entry> singletonList(Entry entry) {
+        List<Entry> list = new ArrayList<>();
+        list.add(entry);
+        return list;
+    }
+}
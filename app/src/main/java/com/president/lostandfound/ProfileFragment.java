@@ -3,11 +3,8 @@ package com.president.lostandfound;
 import android.app.Activity;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
-import android.provider.MediaStore;
-import android.util.Base64;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -22,13 +19,11 @@ import androidx.fragment.app.Fragment;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 
 import de.hdodenhof.circleimageview.CircleImageView;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import okhttp3.MediaType;
 
 import static android.content.Context.MODE_PRIVATE;
 
@@ -39,9 +34,39 @@ public class ProfileFragment extends Fragment {
     private TextInputEditText nameInput, emailInput;
     private MaterialButton saveButton, logoutButton;
     private ProgressBar progressBar;
-    private String selectedImageBase64 = null;
+    private File selectedImageFile = null;
+    private MediaType selectedImageType;
     private ActivityResultLauncher<Intent> imagePickerLauncher;
 
+    private final Outbox.Listener outboxListener = new Outbox.Listener() {
+        @Override
+        public void onUploadProgress(Outbox.Entry entry, int percent) {
+            if (Outbox.TYPE_PROFILE.equals(entry.type) && getView() != null) {
+                saveButton.setText("Uploading " + percent + "%");
+            }
+        }
+
+        @Override
+        public void onProfileUpdated(ApiService.User user) {
+            if (user != null) {
+                ReportRepository.getInstance().setProfile(user);
+                storeProfile(user);
+            }
+            if (getView() != null) {
+                setLoading(false);
+                Toast.makeText(getContext(), "Profile updated successfully", Toast.LENGTH_SHORT).show();
+            }
+        }
+
+        @Override
+        public void onRejected(Outbox.Entry entry) {
+            if (Outbox.TYPE_PROFILE.equals(entry.type) && getView() != null) {
+                setLoading(false);
+                Toast.makeText(getContext(), "Failed to update profile", Toast.LENGTH_SHORT).show();
+            }
+        }
+    };
+
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_profile, container, false);
@@ -59,14 +84,7 @@ public class ProfileFragment extends Fragment {
                 result -> {
                     if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null) {
                         Uri imageUri = result.getData().getData();
-                        try {
-                            Bitmap bitmap = MediaStore.Images.Media.getBitmap(
-                                    requireActivity().getContentResolver(), imageUri);
-                            profileImage.setImageBitmap(bitmap);
-                            selectedImageBase64 = bitmapToBase64(bitmap);
-                        } catch (IOException e) {
-                            Toast.makeText(getContext(), "Failed to load image", Toast.LENGTH_SHORT).show();
-                        }
+                        prepareImage(imageUri);
                     }
                 });
 
@@ -75,44 +93,94 @@ public class ProfileFragment extends Fragment {
         logoutButton.setOnClickListener(v -> logout());
 
         loadProfile();
+        Outbox.getInstance(requireContext()).addListener(outboxListener);
 
         return view;
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        Outbox.getInstance(requireContext()).removeListener(outboxListener);
+    }
+
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        if (!hidden && !ReportRepository.getInstance().isProfileFresh()) {
+            loadProfile();
+        }
+    }
+
     private void openImagePicker() {
         Intent intent = new Intent(Intent.ACTION_PICK);
         intent.setType("image/*");
         imagePickerLauncher.launch(intent);
     }
 
-    private String bitmapToBase64(Bitmap bitmap) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 80, baos);
-        byte[] bytes = baos.toByteArray();
-        return "data:image/jpeg;base64," + Base64.encodeToString(bytes, Base64.DEFAULT);
+    private void prepareImage(Uri imageUri) {
+        ImagePreparer.prepare(requireContext(), imageUri, ImagePreparer.PROFILE_PICTURE, new ImagePreparer.Callback() {
+            @Override
+            public void onPrepared(ImagePreparer.Result result) {
+                if (getView() == null) {
+                    result.file.delete();
+                    return;
+                }
+                profileImage.setImageBitmap(result.preview);
+                discardSelectedImage();
+                selectedImageFile = result.file;
+                selectedImageType = result.mediaType;
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (getView() != null) {
+                    Toast.makeText(getContext(), "Failed to load image", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+    }
+
+    private void discardSelectedImage() {
+        if (selectedImageFile != null) {
+            selectedImageFile.delete();
+            selectedImageFile = null;
+        }
     }
 
     private void loadProfile() {
-        setLoading(true);
-        String token = getToken();
-
-        ApiService.getApiService().getProfile("Bearer " + token).enqueue(new Callback<ApiService.User>() {
+        // The last profile seen is shown right away; the spinner only covers a first load.
+        SharedPreferences prefs = requireActivity().getSharedPreferences("AppPrefs", MODE_PRIVATE);
+        String storedName = prefs.getString("profile_name", null);
+        if (storedName != null) {
+            nameInput.setText(storedName);
+            emailInput.setText(prefs.getString("profile_email", null));
+        } else {
+            setLoading(true);
+        }
+        ReportRepository.getInstance().getProfile(new ReportRepository.Listener<ApiService.User>() {
             @Override
-            public void onResponse(Call<ApiService.User> call, Response<ApiService.User> response) {
-                setLoading(false);
-                if (response.isSuccessful() && response.body() != null) {
-                    ApiService.User user = response.body();
-                    nameInput.setText(user.name);
-                    emailInput.setText(user.email);
-                } else {
-                    Toast.makeText(getContext(), "Failed to load profile", Toast.LENGTH_SHORT).show();
+            public void onResult(ApiService.User user) {
+                if (getView() == null) {
+                    return;
                 }
+                setLoading(false);
+                nameInput.setText(user.name);
+                emailInput.setText(user.email);
+                storeProfile(user);
             }
 
             @Override
-            public void onFailure(Call<ApiService.User> call, Throwable t) {
+            public void onError(Throwable t) {
+                if (getView() == null) {
+                    return;
+                }
                 setLoading(false);
-                Toast.makeText(getContext(), "Connection error", Toast.LENGTH_SHORT).show();
+                if (t instanceof IOException) {
+                    Toast.makeText(getContext(), "Connection error", Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(getContext(), "Failed to load profile", Toast.LENGTH_SHORT).show();
+                }
             }
         });
     }
@@ -125,43 +193,28 @@ public class ProfileFragment extends Fragment {
             return;
         }
 
+        try {
+            Outbox.getInstance(requireContext()).updateProfile(name, selectedImageFile, selectedImageType);
+        } catch (IOException e) {
+            Toast.makeText(getContext(), "Failed to update profile", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        // The outbox owns the file now. The button stays disabled until the outbox reports
+        // the update as sent or rejected, so repeated taps don't queue duplicates.
+        selectedImageFile = null;
         setLoading(true);
-        String token = getToken();
-
-        ApiService.UpdateProfileRequest request = new ApiService.UpdateProfileRequest(name, selectedImageBase64);
-        ApiService.getApiService().updateProfile("Bearer " + token, request)
-                .enqueue(new Callback<ApiService.UpdateProfileResponse>() {
-                    @Override
-                    public void onResponse(Call<ApiService.UpdateProfileResponse> call, Response<ApiService.UpdateProfileResponse> response) {
-                        setLoading(false);
-                        if (response.isSuccessful()) {
-                            Toast.makeText(getContext(), "Profile updated successfully", Toast.LENGTH_SHORT).show();
-                            selectedImageBase64 = null;
-                        } else {
-                            Toast.makeText(getContext(), "Failed to update profile", Toast.LENGTH_SHORT).show();
-                        }
-                    }
-
-                    @Override
-                    public void onFailure(Call<ApiService.UpdateProfileResponse> call, Throwable t) {
-                        setLoading(false);
-                        Toast.makeText(getContext(), "Connection error", Toast.LENGTH_SHORT).show();
-                    }
-                });
+        Toast.makeText(getContext(), "Saving profile...", Toast.LENGTH_SHORT).show();
     }
 
     private void logout() {
-        SharedPreferences prefs = requireActivity().getSharedPreferences("AppPrefs", MODE_PRIVATE);
-        prefs.edit().clear().apply();
-
-        Intent intent = new Intent(getActivity(), LoginActivity.class);
-        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
-        startActivity(intent);
+        LostAndFoundApplication.signOut(requireContext());
     }
 
-    private String getToken() {
-        SharedPreferences prefs = requireActivity().getSharedPreferences("AppPrefs", MODE_PRIVATE);
-        return prefs.getString("token", "");
+    private void storeProfile(ApiService.User user) {
+        requireActivity().getSharedPreferences("AppPrefs", MODE_PRIVATE).edit()
+                .putString("profile_name", user.name)
+                .putString("profile_email", user.email)
+                .apply();
     }
 
     private void setLoading(boolean isLoading) {
@@ -171,6 +224,7 @@ public class ProfileFragment extends Fragment {
         } else {
             progressBar.setVisibility(View.GONE);
             saveButton.setEnabled(true);
+            saveButton.setText("Save Changes");
         }
     }
 }
\ No newline at end of file
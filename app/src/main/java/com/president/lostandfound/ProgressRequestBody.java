@@ -0,0 +1,67 @@
+package com.president.lostandfound;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+// Streams a file into the request in small segments, so the image is never held in
+// memory, and reports progress on the main thread. Every writeTo starts again from the
+// file, which is what lets a failed upload be retried.
+public class ProgressRequestBody extends RequestBody {
+    private static final int SEGMENT_SIZE = 8 * 1024;
+
+    public interface Listener {
+        void onProgress(int percent);
+    }
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final File file;
+    private final MediaType mediaType;
+    private final Listener listener;
+
+    public ProgressRequestBody(File file, MediaType mediaType, Listener listener) {
+        this.file = file;
+        this.mediaType = mediaType;
+        this.listener = listener;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    @Override
+    public long contentLength() {
+        return file.length();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        long total = contentLength();
+        long written = 0;
+        int lastPercent = -1;
+        try (Source source = Okio.source(file)) {
+            Buffer buffer = new Buffer();
+            long read;
+            while ((read = source.read(buffer, SEGMENT_SIZE)) != -1) {
+                sink.write(buffer, read);
+                written += read;
+                int percent = total > 0 ? (int) (written * 100 / total) : 0;
+                if (listener != null && percent != lastPercent) {
+                    lastPercent = percent;
+                    mainHandler.post(() -> listener.onProgress(percent));
+                }
+            }
+        }
+    }
+}
@@ -1,11 +1,7 @@
 package com.president.lostandfound;
 
-import android.content.Context;
-import android.content.SharedPreferences;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
-import android.util.Base64;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
@@ -15,26 +11,51 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.Lifecycle;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
 
 public class ReportDetailActivity extends AppCompatActivity {
+    static final int COMMENT_PAGE_SIZE = 30;
 
     private ImageView ivBack, ivImage, ivUserProfile;
-    private TextView tvTitle, tvDescription, tvUserName, tvMeetupPoint, tvMeetupLocation, tvDate;
+    private TextView tvTitle, tvDescription, tvUserName, tvMeetupPoint, tvMeetupLocation, tvDate, tvEarlierComments;
     private RecyclerView recyclerViewComments;
     private EditText etComment;
     private Button btnSendComment;
     private ProgressBar progressBar, progressBarComments;
 
     private int reportId;
+    private ApiService.Report shownReport;
+    private boolean loadingEarlierComments;
+    private boolean startedOnce;
+    private CommentStream commentStream;
+
+    private final Outbox.Listener outboxListener = new Outbox.Listener() {
+        @Override
+        public void onCommentAdded(ApiService.Comment comment) {
+            if (comment.report_id == reportId) {
+                showAppended(appendComments(Collections.singletonList(comment)));
+            }
+        }
+
+        @Override
+        public void onRejected(Outbox.Entry entry) {
+            if (Outbox.TYPE_COMMENT.equals(entry.type) && entry.reportId == reportId) {
+                Toast.makeText(ReportDetailActivity.this, "Failed to add comment", Toast.LENGTH_SHORT).show();
+            }
+        }
+    };
     private CommentAdapter commentAdapter;
     private List<ApiService.Comment> comments = new ArrayList<>();
 
@@ -54,6 +75,7 @@ public class ReportDetailActivity extends AppCompatActivity {
         tvMeetupPoint = findViewById(R.id.tvMeetupPoint);
         tvMeetupLocation = findViewById(R.id.tvMeetupLocation);
         tvDate = findViewById(R.id.tvDate);
+        tvEarlierComments = findViewById(R.id.tvEarlierComments);
         recyclerViewComments = findViewById(R.id.recyclerViewComments);
         etComment = findViewById(R.id.etComment);
         btnSendComment = findViewById(R.id.btnSendComment);
@@ -62,29 +84,63 @@ public class ReportDetailActivity extends AppCompatActivity {
 
         ivBack.setOnClickListener(v -> finish());
         btnSendComment.setOnClickListener(v -> addComment());
+        tvEarlierComments.setOnClickListener(v -> loadEarlierComments());
 
         recyclerViewComments.setLayoutManager(new LinearLayoutManager(this));
-        commentAdapter = new CommentAdapter(comments);
+        commentAdapter = new CommentAdapter();
         recyclerViewComments.setAdapter(commentAdapter);
 
+        commentStream = new CommentStream(reportId, comment -> {
+            showAppended(appendComments(Collections.singletonList(comment)));
+        });
+
+        Outbox.getInstance(this).addListener(outboxListener);
+
         loadReportDetails();
         loadComments();
     }
 
-    private void loadReportDetails() {
-        progressBar.setVisibility(View.VISIBLE);
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        Outbox.getInstance(this).removeListener(outboxListener);
+    }
 
-        SharedPreferences prefs = getSharedPreferences("AppPrefs", Context.MODE_PRIVATE);
-        String token = "Bearer " + prefs.getString("token", null);
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (startedOnce) {
+            loadNewComments();
+        }
+        startedOnce = true;
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        commentStream.stop();
+    }
 
-        ApiService.getApiService().getReportDetail(token, reportId).enqueue(new Callback<ApiService.Report>() {
+    private void loadReportDetails() {
+        ApiService.Report cached = ReportRepository.getInstance().getReport(reportId);
+        if (cached != null) {
+            displayReport(cached);
+            if (ReportRepository.getInstance().isReportDetailFresh(reportId)) {
+                return;
+            }
+        } else {
+            progressBar.setVisibility(View.VISIBLE);
+        }
+
+        ApiService.getApiService().getReportDetail(reportId).enqueue(new Callback<ApiService.Report>() {
             @Override
             public void onResponse(Call<ApiService.Report> call, Response<ApiService.Report> response) {
                 progressBar.setVisibility(View.GONE);
 
                 if (response.isSuccessful() && response.body() != null) {
+                    ReportRepository.getInstance().putReportDetail(response.body());
                     displayReport(response.body());
-                } else {
+                } else if (shownReport == null) {
                     Toast.makeText(ReportDetailActivity.this, "Failed to load report", Toast.LENGTH_SHORT).show();
                 }
             }
@@ -92,106 +148,229 @@ public class ReportDetailActivity extends AppCompatActivity {
             @Override
             public void onFailure(Call<ApiService.Report> call, Throwable t) {
                 progressBar.setVisibility(View.GONE);
-                Toast.makeText(ReportDetailActivity.this, "Failed to load report", Toast.LENGTH_SHORT).show();
+                if (shownReport == null) {
+                    Toast.makeText(ReportDetailActivity.this, "Failed to load report", Toast.LENGTH_SHORT).show();
+                }
             }
         });
     }
 
+    // Called with the cached list copy first and again with the revalidated report;
+    // only fields that differ from what is on screen are touched.
     private void displayReport(ApiService.Report report) {
-        tvTitle.setText(report.title);
-        tvDescription.setText(report.description);
-        tvUserName.setText(report.user_name);
-        tvMeetupPoint.setText(report.meetup_point_name);
-        tvMeetupLocation.setText(report.meetup_point_location);
-        tvDate.setText(formatDate(report.created_at));
-
-        if (report.image != null && !report.image.isEmpty()) {
-            loadImage(report.image, ivImage);
+        ApiService.Report shown = shownReport;
+        shownReport = report;
+
+        if (shown == null || !Objects.equals(shown.title, report.title)) {
+            tvTitle.setText(report.title);
+        }
+        if (shown == null || !Objects.equals(shown.description, report.description)) {
+            tvDescription.setText(report.description);
+        }
+        if (shown == null || !Objects.equals(shown.user_name, report.user_name)) {
+            tvUserName.setText(report.user_name);
+        }
+        if (shown == null || !Objects.equals(shown.meetup_point_name, report.meetup_point_name)) {
+            tvMeetupPoint.setText(report.meetup_point_name);
+        }
+        if (shown == null || !Objects.equals(shown.meetup_point_location, report.meetup_point_location)) {
+            tvMeetupLocation.setText(report.meetup_point_location);
+        }
+        if (shown == null || !Objects.equals(shown.created_at, report.created_at)) {
+            tvDate.setText(formatDate(report.created_at));
         }
 
-        if (report.user_profile_picture != null && !report.user_profile_picture.isEmpty()) {
-            loadImage(report.user_profile_picture, ivUserProfile);
+        if (report.image != null && !report.image.isEmpty()
+                && (shown == null || !Objects.equals(shown.image, report.image))) {
+            String key = ImageLoader.key("report", report.id, report.image);
+            Bitmap preview = ImageLoader.getInstance().getAnyCached(key);
+            if (preview != null) {
+                ivImage.setImageBitmap(preview);
+            }
+            ImageLoader.getInstance().load(key, report.image, ivImage, 0);
         }
-    }
 
-    private void loadImage(String base64Image, ImageView imageView) {
-        try {
-            if (base64Image.contains(",")) {
-                base64Image = base64Image.split(",")[1];
+        if (report.user_profile_picture != null && !report.user_profile_picture.isEmpty()
+                && (shown == null || !Objects.equals(shown.user_profile_picture, report.user_profile_picture))) {
+            String key = ImageLoader.key("user", report.user_id, report.user_profile_picture);
+            Bitmap preview = ImageLoader.getInstance().getAnyCached(key);
+            if (preview != null) {
+                ivUserProfile.setImageBitmap(preview);
             }
-            byte[] decodedString = Base64.decode(base64Image, Base64.DEFAULT);
-            Bitmap decodedByte = BitmapFactory.decodeByteArray(decodedString, 0, decodedString.length);
-            imageView.setImageBitmap(decodedByte);
-        } catch (Exception e) {
-            e.printStackTrace();
+            ImageLoader.getInstance().load(key, report.user_profile_picture, ivUserProfile, 0);
         }
     }
 
     private void loadComments() {
+        List<ApiService.Comment> prefetched = ReportRepository.getInstance().getFreshComments(reportId);
+        if (prefetched != null) {
+            comments.addAll(prefetched);
+            setHasEarlierComments(prefetched.size() >= COMMENT_PAGE_SIZE);
+            commentAdapter.submitList(new ArrayList<>(comments));
+            loadNewComments();
+            return;
+        }
+
         progressBarComments.setVisibility(View.VISIBLE);
 
-        SharedPreferences prefs = getSharedPreferences("AppPrefs", Context.MODE_PRIVATE);
-        String token = "Bearer " + prefs.getString("token", null);
+        ReportStore.getInstance(this).loadComments(reportId, cached -> {
+            if (cached.isEmpty()) {
+                loadLatestComments();
+                return;
+            }
+            progressBarComments.setVisibility(View.GONE);
+            comments.addAll(cached);
+            setHasEarlierComments(cached.size() >= COMMENT_PAGE_SIZE);
+            commentAdapter.submitList(new ArrayList<>(comments));
+            loadNewComments();
+        });
+    }
 
-        ApiService.getApiService().getComments(token, reportId).enqueue(new Callback<List<ApiService.Comment>>() {
+    private void loadLatestComments() {
+        fetchComments(null, null, new ReportRepository.Listener<List<ApiService.Comment>>() {
             @Override
-            public void onResponse(Call<List<ApiService.Comment>> call, Response<List<ApiService.Comment>> response) {
+            public void onResult(List<ApiService.Comment> page) {
                 progressBarComments.setVisibility(View.GONE);
-
-                if (response.isSuccessful() && response.body() != null) {
-                    comments.clear();
-                    comments.addAll(response.body());
-                    commentAdapter.notifyDataSetChanged();
-                }
+                comments.clear();
+                comments.addAll(page);
+                setHasEarlierComments(page.size() == COMMENT_PAGE_SIZE);
+                commentsChanged(null, null);
+                openCommentStream();
             }
 
             @Override
-            public void onFailure(Call<List<ApiService.Comment>> call, Throwable t) {
+            public void onError(Throwable t) {
                 progressBarComments.setVisibility(View.GONE);
             }
         });
     }
 
-    private void addComment() {
-        String commentText = etComment.getText().toString().trim();
+    // Only comments newer than the last one shown are transferred. A full page means the
+    // gap may be larger than one page, so the thread restarts from the latest page.
+    private void loadNewComments() {
+        fetchComments(null, lastCommentId(), new ReportRepository.Listener<List<ApiService.Comment>>() {
+            @Override
+            public void onResult(List<ApiService.Comment> page) {
+                if (page.size() == COMMENT_PAGE_SIZE) {
+                    loadLatestComments();
+                    return;
+                }
+                showAppended(appendComments(page));
+                openCommentStream();
+            }
 
-        if (commentText.isEmpty()) {
-            Toast.makeText(this, "Please enter a comment", Toast.LENGTH_SHORT).show();
+            @Override
+            public void onError(Throwable t) {
+                openCommentStream();
+            }
+        });
+    }
+
+    private void loadEarlierComments() {
+        if (loadingEarlierComments || comments.isEmpty()) {
             return;
         }
-
-        btnSendComment.setEnabled(false);
-
-        SharedPreferences prefs = getSharedPreferences("AppPrefs", Context.MODE_PRIVATE);
-        String token = "Bearer " + prefs.getString("token", null);
-
-        ApiService.AddCommentRequest request = new ApiService.AddCommentRequest(commentText);
-
-        ApiService.getApiService().addComment(token, reportId, request).enqueue(new Callback<ApiService.AddCommentResponse>() {
+        loadingEarlierComments = true;
+        int oldestId = comments.get(0).id;
+        fetchComments(oldestId, null, new ReportRepository.Listener<List<ApiService.Comment>>() {
             @Override
-            public void onResponse(Call<ApiService.AddCommentResponse> call, Response<ApiService.AddCommentResponse> response) {
-                btnSendComment.setEnabled(true);
-
-                if (response.isSuccessful() && response.body() != null) {
-                    etComment.setText("");
-                    comments.add(response.body().comment);
-                    commentAdapter.notifyItemInserted(comments.size() - 1);
-                    recyclerViewComments.scrollToPosition(comments.size() - 1);
-                    Toast.makeText(ReportDetailActivity.this, "Comment added", Toast.LENGTH_SHORT).show();
-                } else {
-                    Toast.makeText(ReportDetailActivity.this, "Failed to add comment", Toast.LENGTH_SHORT).show();
+            public void onResult(List<ApiService.Comment> page) {
+                loadingEarlierComments = false;
+                setHasEarlierComments(page.size() == COMMENT_PAGE_SIZE);
+                if (!comments.isEmpty() && comments.get(0).id == oldestId) {
+                    comments.addAll(0, page);
+                    commentsChanged(page, null);
                 }
             }
 
             @Override
-            public void onFailure(Call<ApiService.AddCommentResponse> call, Throwable t) {
-                btnSendComment.setEnabled(true);
-                Toast.makeText(ReportDetailActivity.this, "Failed to add comment", Toast.LENGTH_SHORT).show();
+            public void onError(Throwable t) {
+                loadingEarlierComments = false;
+                Toast.makeText(ReportDetailActivity.this, "Failed to load comments", Toast.LENGTH_SHORT).show();
             }
         });
     }
 
-    private String formatDate(String dateString) {
+    private void fetchComments(Integer beforeId, Integer afterId, ReportRepository.Listener<List<ApiService.Comment>> listener) {
+        ApiService.getApiService().getComments(reportId, COMMENT_PAGE_SIZE, beforeId, afterId)
+                .enqueue(new Callback<List<ApiService.Comment>>() {
+                    @Override
+                    public void onResponse(Call<List<ApiService.Comment>> call, Response<List<ApiService.Comment>> response) {
+                        if (response.isSuccessful() && response.body() != null) {
+                            listener.onResult(response.body());
+                        } else {
+                            listener.onError(new IllegalStateException("HTTP " + response.code()));
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Call<List<ApiService.Comment>> call, Throwable t) {
+                        listener.onError(t);
+                    }
+                });
+    }
+
+    // Once the thread is caught up, new comments are pushed instead of polled; the stream
+    // resumes after the last comment shown, or from the start of an empty thread.
+    private void openCommentStream() {
+        if (getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+            commentStream.start(lastCommentId());
+        }
+    }
+
+    private int lastCommentId() {
+        return comments.isEmpty() ? 0 : comments.get(comments.size() - 1).id;
+    }
+
+    // Skips comments already shown, e.g. one this user just posted. Returns the ones added.
+    private List<ApiService.Comment> appendComments(List<ApiService.Comment> page) {
+        int lastId = lastCommentId();
+        List<ApiService.Comment> added = new ArrayList<>();
+        for (ApiService.Comment comment : page) {
+            if (comment.id > lastId) {
+                comments.add(comment);
+                lastId = comment.id;
+                added.add(comment);
+            }
+        }
+        return added;
+    }
+
+    private void showAppended(List<ApiService.Comment> added) {
+        if (!added.isEmpty()) {
+            commentsChanged(added, () -> recyclerViewComments.scrollToPosition(comments.size() - 1));
+        }
+    }
+
+    // added holds the rows new since the last change and is all that gets written; null
+    // means the list was restarted from the latest page and replaces what is stored.
+    private void commentsChanged(List<ApiService.Comment> added, Runnable commitCallback) {
+        commentAdapter.submitList(new ArrayList<>(comments), commitCallback);
+        ReportRepository.getInstance().putComments(reportId, new ArrayList<>(comments));
+        if (added == null) {
+            ReportStore.getInstance(this).saveComments(reportId, new ArrayList<>(comments));
+        } else {
+            ReportStore.getInstance(this).insertComments(added);
+        }
+    }
+
+    private void setHasEarlierComments(boolean hasEarlier) {
+        tvEarlierComments.setVisibility(hasEarlier ? View.VISIBLE : View.GONE);
+    }
+
+    private void addComment() {
+        String commentText = etComment.getText().toString().trim();
+
+        if (commentText.isEmpty()) {
+            Toast.makeText(this, "Please enter a comment", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        Outbox.getInstance(this).addComment(reportId, commentText);
+        etComment.setText("");
+    }
+
+    static String formatDate(String dateString) {
         try {
             return dateString.substring(0, 10);
         } catch (Exception e) {
@@ -199,12 +378,16 @@ public class ReportDetailActivity extends AppCompatActivity {
         }
     }
 
-    private static class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.ViewHolder> {
+    private static class CommentAdapter extends ListAdapter<ApiService.Comment, CommentAdapter.ViewHolder> {
 
-        private List<ApiService.Comment> comments;
+        CommentAdapter() {
+            super(CommentDiffCallback.INSTANCE);
+            setHasStableIds(true);
+        }
 
-        CommentAdapter(List<ApiService.Comment> comments) {
-            this.comments = comments;
+        @Override
+        public long getItemId(int position) {
+            return getItem(position).id;
         }
 
         @Override
@@ -216,38 +399,21 @@ public class ReportDetailActivity extends AppCompatActivity {
 
         @Override
         public void onBindViewHolder(ViewHolder holder, int position) {
-            ApiService.Comment comment = comments.get(position);
+            ApiService.Comment comment = getItem(position);
 
             holder.tvUserName.setText(comment.user_name);
             holder.tvComment.setText(comment.comment);
             holder.tvDate.setText(formatDate(comment.created_at));
 
-            if (comment.user_profile_picture != null && !comment.user_profile_picture.isEmpty()) {
-                try {
-                    String base64Image = comment.user_profile_picture;
-                    if (base64Image.contains(",")) {
-                        base64Image = base64Image.split(",")[1];
-                    }
-                    byte[] decodedString = Base64.decode(base64Image, Base64.DEFAULT);
-                    Bitmap decodedByte = BitmapFactory.decodeByteArray(decodedString, 0, decodedString.length);
-                    holder.ivUserProfile.setImageBitmap(decodedByte);
-                } catch (Exception e) {
-                    holder.ivUserProfile.setImageResource(android.R.drawable.ic_menu_gallery);
-                }
-            }
+            ImageLoader.getInstance().loadThumbnail(
+                    comment.user_profile_picture != null
+                            ? ImageLoader.key("user", comment.user_id, comment.user_profile_picture) : null,
+                    comment.user_profile_picture, holder.ivUserProfile, android.R.drawable.ic_menu_gallery);
         }
 
         @Override
-        public int getItemCount() {
-            return comments.size();
-        }
-
-        private static String formatDate(String dateString) {
-            try {
-                return dateString.substring(0, 10);
-            } catch (Exception e) {
-                return dateString;
-            }
+        public void onViewRecycled(ViewHolder holder) {
+            ImageLoader.getInstance().cancel(holder.ivUserProfile);
         }
 
         static class ViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,22 @@
+package com.president.lostandfound;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.Objects;
+
+public class ReportDiffCallback extends DiffUtil.ItemCallback<ApiService.Report> {
+
+    public static final ReportDiffCallback INSTANCE = new ReportDiffCallback();
+
+    @Override
+    public boolean areItemsTheSame(ApiService.Report oldItem, ApiService.Report newItem) {
+        return oldItem.id == newItem.id;
+    }
+
+    // A text-only copy from the search index must rebind once the full report arrives.
+    @Override
+    public boolean areContentsTheSame(ApiService.Report oldItem, ApiService.Report newItem) {
+        return Objects.equals(oldItem.updated_at, newItem.updated_at)
+                && (oldItem.image == null) == (newItem.image == null);
+    }
+}
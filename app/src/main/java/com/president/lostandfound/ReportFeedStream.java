@@ -0,0 +1,88 @@
+package com.president.lostandfound;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+public class ReportFeedStream {
+    private static final int BATCH_SIZE = 10;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "report-feed-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public interface Listener {
+        void onReports(List<ApiService.Report> batch);
+
+        void onComplete(int total);
+
+        void onError(Throwable t);
+    }
+
+    public static Call<ResponseBody> load(Call<ResponseBody> call, Listener listener) {
+        executor.execute(() -> {
+            try {
+                Response<ResponseBody> response = call.execute();
+                if (!response.isSuccessful() || response.body() == null) {
+                    throw new IOException("HTTP " + response.code());
+                }
+                try (ResponseBody body = response.body()) {
+                    int total = parse(body, call, listener);
+                    post(call, () -> listener.onComplete(total));
+                }
+            } catch (IOException | RuntimeException e) {
+                post(call, () -> listener.onError(e));
+            }
+        });
+        return call;
+    }
+
+    // Reports are handed over as soon as they are parsed: the first one alone so the
+    // first row appears without waiting for a batch, the rest in small batches.
+    private static int parse(ResponseBody body, Call<ResponseBody> call, Listener listener) throws IOException {
+        int total = 0;
+        List<ApiService.Report> batch = new ArrayList<>();
+
+        JsonReader reader = new JsonReader(body.charStream());
+        reader.beginArray();
+        while (reader.hasNext() && !call.isCanceled()) {
+            ApiService.Report report = ApiJson.GSON.fromJson(reader, ApiService.Report.class);
+            batch.add(report);
+            total++;
+
+            if (total == 1 || batch.size() >= BATCH_SIZE) {
+                List<ApiService.Report> ready = batch;
+                batch = new ArrayList<>();
+                post(call, () -> listener.onReports(ready));
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            List<ApiService.Report> ready = batch;
+            post(call, () -> listener.onReports(ready));
+        }
+        return total;
+    }
+
+    private static void post(Call<ResponseBody> call, Runnable runnable) {
+        mainHandler.post(() -> {
+            if (!call.isCanceled()) {
+                runnable.run();
+            }
+        });
+    }
+}
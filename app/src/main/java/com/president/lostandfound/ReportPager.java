@@ -0,0 +1,368 @@
+package com.president.lostandfound;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+
+public class ReportPager {
+    static final int PAGE_SIZE = 20;
+    private static final int PREFETCH_DISTANCE = 5;
+    private static final int MAX_LOADED_PAGES = 5;
+
+    public interface Listener {
+        void onItemRangeInserted(int start, int count);
+
+        void onItemRangeChanged(int start, int count);
+
+        void onItemRangeRemoved(int start, int count);
+
+        void onItemMoved(int fromPosition, int toPosition);
+
+        void onPageLoaded(int pageIndex);
+
+        void onError(Throwable t);
+    }
+
+    // A page keeps its size after its items are dropped, so positions never shift and
+    // the adapter shows placeholders until the page is fetched again from its cursor.
+    private static class Page {
+        final Integer cursor;
+        List<ApiService.Report> items = new ArrayList<>();
+        int size;
+        int lastId;
+        Call<ResponseBody> call;
+
+        Page(Integer cursor) {
+            this.cursor = cursor;
+        }
+    }
+
+    private static final ExecutorService diffExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "report-pager-diff");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ReportStore store;
+    private final Listener listener;
+    private final List<Page> pages = new ArrayList<>();
+    private boolean endReached;
+    private int lastAccessedPage;
+
+    public ReportPager(ReportStore store, Listener listener) {
+        this.store = store;
+        this.listener = listener;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Page page : pages) {
+            size += page.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return endReached && size() == 0;
+    }
+
+    public ApiService.Report peek(int position) {
+        int offset = 0;
+        for (Page page : pages) {
+            if (position < offset + page.size) {
+                return page.items != null ? page.items.get(position - offset) : null;
+            }
+            offset += page.size;
+        }
+        return null;
+    }
+
+    public ApiService.Report get(int position) {
+        if (position >= size() - PREFETCH_DISTANCE) {
+            loadNextPage();
+        }
+
+        int offset = 0;
+        for (int i = 0; i < pages.size(); i++) {
+            Page page = pages.get(i);
+            if (position < offset + page.size) {
+                lastAccessedPage = i;
+                if (page.items == null) {
+                    reloadPage(i);
+                    return null;
+                }
+                return page.items.get(position - offset);
+            }
+            offset += page.size;
+        }
+        return null;
+    }
+
+    // Keeps the first page on screen and revalidates it in place, so a refresh that
+    // changes one report only rebinds that row.
+    public void refresh() {
+        cancel();
+        if (pages.isEmpty() || pages.get(0).items == null) {
+            start(new ArrayList<>());
+            return;
+        }
+
+        int firstPageSize = pages.get(0).size;
+        int removed = size() - firstPageSize;
+        while (pages.size() > 1) {
+            pages.remove(pages.size() - 1);
+        }
+        endReached = false;
+        lastAccessedPage = 0;
+        if (removed > 0) {
+            listener.onItemRangeRemoved(firstPageSize, removed);
+        }
+        reloadPage(0);
+    }
+
+    // Cached reports are shown as a provisional first page which is then revalidated
+    // against the server in place, like a page that had been dropped.
+    public void start(List<ApiService.Report> cached) {
+        cancel();
+        int removed = size();
+        pages.clear();
+        endReached = false;
+        lastAccessedPage = 0;
+        if (removed > 0) {
+            listener.onItemRangeRemoved(0, removed);
+        }
+
+        if (cached.isEmpty()) {
+            loadNextPage();
+            return;
+        }
+
+        Page page = new Page(null);
+        page.items.addAll(cached);
+        page.size = cached.size();
+        page.lastId = cached.get(cached.size() - 1).id;
+        pages.add(page);
+        ReportSearchIndex.getInstance().addAll(cached);
+        ReportRepository.getInstance().putReports(cached);
+        listener.onItemRangeInserted(0, page.size);
+        reloadPage(0);
+    }
+
+    public void cancel() {
+        for (Page page : pages) {
+            if (page.call != null) {
+                page.call.cancel();
+                page.call = null;
+            }
+        }
+    }
+
+    private void loadNextPage() {
+        if (endReached) {
+            return;
+        }
+        if (!pages.isEmpty()) {
+            Page last = pages.get(pages.size() - 1);
+            if (last.call != null) {
+                return;
+            }
+        }
+
+        Integer cursor = pages.isEmpty() ? null : pages.get(pages.size() - 1).lastId;
+        int index = pages.size();
+        Page page = new Page(cursor);
+        pages.add(page);
+
+        Call<ResponseBody> call = ApiService.getApiService().getReportsStream(PAGE_SIZE, cursor);
+        page.call = ReportFeedStream.load(call, new ReportFeedStream.Listener() {
+            @Override
+            public void onReports(List<ApiService.Report> batch) {
+                int start = offsetOf(index) + page.size;
+                page.items.addAll(batch);
+                page.size += batch.size();
+                page.lastId = batch.get(batch.size() - 1).id;
+                ReportSearchIndex.getInstance().addAll(batch);
+                ReportRepository.getInstance().putReports(batch);
+                listener.onItemRangeInserted(start, batch.size());
+            }
+
+            @Override
+            public void onComplete(int total) {
+                page.call = null;
+                if (total < PAGE_SIZE) {
+                    endReached = true;
+                }
+                persist(index, page.items);
+                if (page.size == 0) {
+                    pages.remove(page);
+                }
+                listener.onPageLoaded(index);
+                trimWindow();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                page.call = null;
+                if (page.size == 0) {
+                    pages.remove(page);
+                }
+                listener.onError(t);
+            }
+        });
+    }
+
+    private void reloadPage(int index) {
+        Page page = pages.get(index);
+        if (page.call != null) {
+            return;
+        }
+
+        List<ApiService.Report> loaded = new ArrayList<>();
+        Call<ResponseBody> call = ApiService.getApiService().getReportsStream(PAGE_SIZE, page.cursor);
+        page.call = ReportFeedStream.load(call, new ReportFeedStream.Listener() {
+            @Override
+            public void onReports(List<ApiService.Report> batch) {
+                loaded.addAll(batch);
+                ReportSearchIndex.getInstance().addAll(batch);
+                ReportRepository.getInstance().putReports(batch);
+            }
+
+            @Override
+            public void onComplete(int total) {
+                page.call = null;
+                if (index == pages.size() - 1 && total < PAGE_SIZE) {
+                    endReached = true;
+                }
+                persist(index, loaded);
+                applyReload(index, page, loaded);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                page.call = null;
+                listener.onError(t);
+            }
+        });
+    }
+
+    // A page that still holds items (the cached first page) is diffed off the main thread
+    // so only rows whose report changed are rebound; a dropped page has nothing to diff.
+    private void applyReload(int index, Page page, List<ApiService.Report> loaded) {
+        List<ApiService.Report> old = page.items;
+        if (old == null) {
+            int start = offsetOf(index);
+            int oldSize = page.size;
+            replaceItems(page, loaded);
+            listener.onItemRangeChanged(start, Math.min(oldSize, page.size));
+            if (page.size > oldSize) {
+                listener.onItemRangeInserted(start + oldSize, page.size - oldSize);
+            } else if (page.size < oldSize) {
+                listener.onItemRangeRemoved(start + page.size, oldSize - page.size);
+            }
+            listener.onPageLoaded(index);
+            trimWindow();
+            return;
+        }
+
+        diffExecutor.execute(() -> {
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                @Override
+                public int getOldListSize() {
+                    return old.size();
+                }
+
+                @Override
+                public int getNewListSize() {
+                    return loaded.size();
+                }
+
+                @Override
+                public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                    return ReportDiffCallback.INSTANCE.areItemsTheSame(old.get(oldItemPosition), loaded.get(newItemPosition));
+                }
+
+                @Override
+                public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                    return ReportDiffCallback.INSTANCE.areContentsTheSame(old.get(oldItemPosition), loaded.get(newItemPosition));
+                }
+            });
+
+            mainHandler.post(() -> {
+                if (page.items != old || !pages.contains(page)) {
+                    return;
+                }
+                int start = offsetOf(index);
+                replaceItems(page, loaded);
+                result.dispatchUpdatesTo(new ListUpdateCallback() {
+                    @Override
+                    public void onInserted(int position, int count) {
+                        listener.onItemRangeInserted(start + position, count);
+                    }
+
+                    @Override
+                    public void onRemoved(int position, int count) {
+                        listener.onItemRangeRemoved(start + position, count);
+                    }
+
+                    @Override
+                    public void onMoved(int fromPosition, int toPosition) {
+                        listener.onItemMoved(start + fromPosition, start + toPosition);
+                    }
+
+                    @Override
+                    public void onChanged(int position, int count, Object payload) {
+                        listener.onItemRangeChanged(start + position, count);
+                    }
+                });
+                listener.onPageLoaded(index);
+                trimWindow();
+            });
+        });
+    }
+
+    private static void replaceItems(Page page, List<ApiService.Report> loaded) {
+        page.items = loaded;
+        page.size = loaded.size();
+        if (!loaded.isEmpty()) {
+            page.lastId = loaded.get(loaded.size() - 1).id;
+        }
+    }
+
+    private void persist(int index, List<ApiService.Report> items) {
+        if (index == 0) {
+            store.reconcileLatest(items);
+        } else if (!items.isEmpty()) {
+            store.saveReports(items);
+        }
+    }
+
+    private void trimWindow() {
+        int keep = MAX_LOADED_PAGES / 2;
+        for (int i = 0; i < pages.size(); i++) {
+            Page page = pages.get(i);
+            if (Math.abs(i - lastAccessedPage) > keep && page.items != null && page.call == null) {
+                page.items = null;
+                listener.onItemRangeChanged(offsetOf(i), page.size);
+            }
+        }
+    }
+
+    private int offsetOf(int index) {
+        int offset = 0;
+        for (int i = 0; i < index; i++) {
+            offset += pages.get(i).size;
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,244 @@
+package com.president.lostandfound;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+// Warms ReportRepository with the detail and comments of reports that stay on screen
+// once scrolling settles, so opening one rarely waits on the network. Item ids come
+// from the adapter's stable ids; negative ids (placeholders) are skipped.
+public class ReportPrefetcher extends RecyclerView.OnScrollListener {
+    private static final long DWELL_MS = 500;
+    private static final int MAX_QUEUED = 8;
+    private static final int MAX_IN_FLIGHT_UNMETERED = 2;
+    private static final int MAX_IN_FLIGHT_METERED = 1;
+
+    private enum NetworkMode { OFF, METERED, UNMETERED }
+
+    private final Context context;
+    private final RecyclerView recyclerView;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private final Set<Integer> pending = new HashSet<>();
+    private final List<Call<?>> inFlight = new ArrayList<>();
+    private final Runnable dwellCheck = this::onDwell;
+    private int generation;
+
+    private static class Task implements Comparable<Task> {
+        final int reportId;
+        final int generation;
+        final int distance;
+        int remaining;
+
+        Task(int reportId, int generation, int distance) {
+            this.reportId = reportId;
+            this.generation = generation;
+            this.distance = distance;
+        }
+
+        // Latest viewport first, then closest to its middle.
+        @Override
+        public int compareTo(Task other) {
+            if (generation != other.generation) {
+                return Integer.compare(other.generation, generation);
+            }
+            return Integer.compare(distance, other.distance);
+        }
+    }
+
+    private ReportPrefetcher(RecyclerView recyclerView) {
+        this.context = recyclerView.getContext().getApplicationContext();
+        this.recyclerView = recyclerView;
+    }
+
+    public static ReportPrefetcher attach(RecyclerView recyclerView) {
+        ReportPrefetcher prefetcher = new ReportPrefetcher(recyclerView);
+        recyclerView.addOnScrollListener(prefetcher);
+        return prefetcher;
+    }
+
+    public void detach() {
+        recyclerView.removeOnScrollListener(this);
+        cancel();
+    }
+
+    public void schedule() {
+        handler.removeCallbacks(dwellCheck);
+        handler.postDelayed(dwellCheck, DWELL_MS);
+    }
+
+    public void cancel() {
+        handler.removeCallbacks(dwellCheck);
+        queue.clear();
+        pending.clear();
+        for (Call<?> call : new ArrayList<>(inFlight)) {
+            call.cancel();
+        }
+        inFlight.clear();
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            schedule();
+        } else {
+            handler.removeCallbacks(dwellCheck);
+        }
+    }
+
+    // Also fires with (0, 0) after layout, which covers new data arriving.
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        if (recyclerView.getScrollState() == RecyclerView.SCROLL_STATE_IDLE) {
+            schedule();
+        }
+    }
+
+    private void onDwell() {
+        RecyclerView.Adapter<?> adapter = recyclerView.getAdapter();
+        if (!(recyclerView.getLayoutManager() instanceof LinearLayoutManager) || adapter == null) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        NetworkMode mode = networkMode();
+        if (first == RecyclerView.NO_POSITION || mode == NetworkMode.OFF) {
+            return;
+        }
+
+        generation++;
+        int middle = (first + last) / 2;
+        for (int position = first; position <= last && position < adapter.getItemCount(); position++) {
+            long id = adapter.getItemId(position);
+            if (id < 0 || pending.contains((int) id) || isWarm((int) id, mode)) {
+                continue;
+            }
+            offer(new Task((int) id, generation, Math.abs(position - middle)));
+        }
+        drain(mode);
+    }
+
+    private void offer(Task task) {
+        queue.add(task);
+        pending.add(task.reportId);
+        if (queue.size() > MAX_QUEUED) {
+            Task worst = null;
+            for (Task queued : queue) {
+                if (worst == null || queued.compareTo(worst) > 0) {
+                    worst = queued;
+                }
+            }
+            queue.remove(worst);
+            pending.remove(worst.reportId);
+        }
+    }
+
+    // On metered networks only the comments are fetched: the list copy of the report
+    // already carries the image, which is what makes the detail response expensive.
+    private boolean isWarm(int reportId, NetworkMode mode) {
+        ReportRepository repository = ReportRepository.getInstance();
+        return repository.getFreshComments(reportId) != null
+                && (mode == NetworkMode.METERED || repository.isReportDetailFresh(reportId));
+    }
+
+    private void drain(NetworkMode mode) {
+        int limit = mode == NetworkMode.UNMETERED ? MAX_IN_FLIGHT_UNMETERED : MAX_IN_FLIGHT_METERED;
+        while (inFlight.size() < limit && !queue.isEmpty()) {
+            start(queue.poll(), mode);
+        }
+    }
+
+    private void start(Task task, NetworkMode mode) {
+        ReportRepository repository = ReportRepository.getInstance();
+
+        if (mode == NetworkMode.UNMETERED && !repository.isReportDetailFresh(task.reportId)) {
+            task.remaining++;
+            Call<ApiService.Report> call = ApiService.getApiService().getReportDetail(task.reportId);
+            inFlight.add(call);
+            call.enqueue(new Callback<ApiService.Report>() {
+                @Override
+                public void onResponse(Call<ApiService.Report> c, Response<ApiService.Report> response) {
+                    if (response.isSuccessful() && response.body() != null) {
+                        repository.putReportDetail(response.body());
+                    }
+                    finish(task, call);
+                }
+
+                @Override
+                public void onFailure(Call<ApiService.Report> c, Throwable t) {
+                    finish(task, call);
+                }
+            });
+        }
+
+        if (repository.getFreshComments(task.reportId) == null) {
+            task.remaining++;
+            Call<List<ApiService.Comment>> call = ApiService.getApiService().getComments(task.reportId,
+                    ReportDetailActivity.COMMENT_PAGE_SIZE, null, null);
+            inFlight.add(call);
+            call.enqueue(new Callback<List<ApiService.Comment>>() {
+                @Override
+                public void onResponse(Call<List<ApiService.Comment>> c, Response<List<ApiService.Comment>> response) {
+                    if (response.isSuccessful() && response.body() != null) {
+                        repository.putComments(task.reportId, response.body());
+                        ReportStore.getInstance(context).mergeLatestComments(task.reportId, response.body());
+                    }
+                    finish(task, call);
+                }
+
+                @Override
+                public void onFailure(Call<List<ApiService.Comment>> c, Throwable t) {
+                    finish(task, call);
+                }
+            });
+        }
+
+        if (task.remaining == 0) {
+            pending.remove(task.reportId);
+        }
+    }
+
+    private void finish(Task task, Call<?> call) {
+        if (!inFlight.remove(call)) {
+            return;
+        }
+        if (--task.remaining == 0) {
+            pending.remove(task.reportId);
+        }
+        NetworkMode mode = networkMode();
+        if (mode != NetworkMode.OFF) {
+            drain(mode);
+        }
+    }
+
+    private NetworkMode networkMode() {
+        ConnectivityManager connectivity = context.getSystemService(ConnectivityManager.class);
+        NetworkCapabilities capabilities = connectivity.getNetworkCapabilities(connectivity.getActiveNetwork());
+        if (capabilities == null) {
+            return NetworkMode.OFF;
+        }
+        if (capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED)) {
+            return NetworkMode.UNMETERED;
+        }
+        if (connectivity.getRestrictBackgroundStatus() == ConnectivityManager.RESTRICT_BACKGROUND_STATUS_ENABLED) {
+            return NetworkMode.OFF;
+        }
+        return NetworkMode.METERED;
+    }
+}
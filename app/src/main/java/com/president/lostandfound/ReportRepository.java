@@ -0,0 +1,174 @@
+package com.president.lostandfound;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import java.util.Collection;
+import java.util.List;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+public class ReportRepository {
+    public static final long FRESHNESS_MS = 5 * 60 * 1000;
+    private static final int MAX_CACHED_REPORTS = 60;
+    private static final int MAX_CACHED_COMMENT_LISTS = 20;
+
+    private static ReportRepository instance;
+
+    private final LruCache<Integer, ApiService.Report> reports = new LruCache<>(MAX_CACHED_REPORTS);
+    private final LruCache<Integer, Long> detailsLoadedAt = new LruCache<>(MAX_CACHED_REPORTS);
+    private final LruCache<Integer, CachedComments> comments = new LruCache<>(MAX_CACHED_COMMENT_LISTS);
+    private List<ApiService.MeetupPoint> meetupPoints;
+    private long meetupPointsLoadedAt;
+    private ApiService.User profile;
+    private long profileLoadedAt;
+
+    private static class CachedComments {
+        final List<ApiService.Comment> comments;
+        final long loadedAt;
+
+        CachedComments(List<ApiService.Comment> comments, long loadedAt) {
+            this.comments = comments;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    public interface Listener<T> {
+        void onResult(T result);
+
+        void onError(Throwable t);
+    }
+
+    public static synchronized ReportRepository getInstance() {
+        if (instance == null) {
+            instance = new ReportRepository();
+        }
+        return instance;
+    }
+
+    public static boolean isFresh(long loadedAt) {
+        return loadedAt > 0 && SystemClock.elapsedRealtime() - loadedAt < FRESHNESS_MS;
+    }
+
+    public void putReports(Collection<ApiService.Report> batch) {
+        for (ApiService.Report report : batch) {
+            putReport(report);
+        }
+    }
+
+    // Text-only copies from the search index never replace a full report.
+    public void putReport(ApiService.Report report) {
+        if (report.image != null) {
+            reports.put(report.id, report);
+        }
+    }
+
+    public ApiService.Report getReport(int reportId) {
+        return reports.get(reportId);
+    }
+
+    // A report fetched from the detail endpoint, as opposed to one taken from a list page.
+    public void putReportDetail(ApiService.Report report) {
+        putReport(report);
+        detailsLoadedAt.put(report.id, SystemClock.elapsedRealtime());
+    }
+
+    public boolean isReportDetailFresh(int reportId) {
+        Long loadedAt = detailsLoadedAt.get(reportId);
+        return loadedAt != null && isFresh(loadedAt) && reports.get(reportId) != null;
+    }
+
+    public void putComments(int reportId, List<ApiService.Comment> list) {
+        comments.put(reportId, new CachedComments(list, SystemClock.elapsedRealtime()));
+    }
+
+    // Only returned while fresh, so callers can skip the network entirely.
+    public List<ApiService.Comment> getFreshComments(int reportId) {
+        CachedComments cached = comments.get(reportId);
+        return cached != null && isFresh(cached.loadedAt) ? cached.comments : null;
+    }
+
+    // Served from memory while fresh; otherwise the stored copy (if any) is delivered
+    // first and the network result follows, so the listener may be called twice.
+    public void getMeetupPoints(Context context, Listener<List<ApiService.MeetupPoint>> listener) {
+        if (meetupPoints != null) {
+            listener.onResult(meetupPoints);
+            if (isFresh(meetupPointsLoadedAt)) {
+                return;
+            }
+        } else {
+            ReportStore.getInstance(context).loadMeetupPoints(cached -> {
+                if (meetupPoints == null && !cached.isEmpty()) {
+                    meetupPoints = cached;
+                    listener.onResult(cached);
+                }
+            });
+        }
+
+        ReportStore store = ReportStore.getInstance(context);
+        ApiService.getApiService().getMeetupPoints().enqueue(new Callback<List<ApiService.MeetupPoint>>() {
+            @Override
+            public void onResponse(Call<List<ApiService.MeetupPoint>> call, Response<List<ApiService.MeetupPoint>> response) {
+                if (response.isSuccessful() && response.body() != null) {
+                    meetupPoints = response.body();
+                    meetupPointsLoadedAt = SystemClock.elapsedRealtime();
+                    store.saveMeetupPoints(meetupPoints);
+                    listener.onResult(meetupPoints);
+                } else {
+                    listener.onError(new IllegalStateException("HTTP " + response.code()));
+                }
+            }
+
+            @Override
+            public void onFailure(Call<List<ApiService.MeetupPoint>> call, Throwable t) {
+                listener.onError(t);
+            }
+        });
+    }
+
+    public void getProfile(Listener<ApiService.User> listener) {
+        if (isProfileFresh()) {
+            listener.onResult(profile);
+            return;
+        }
+
+        ApiService.getApiService().getProfile().enqueue(new Callback<ApiService.User>() {
+            @Override
+            public void onResponse(Call<ApiService.User> call, Response<ApiService.User> response) {
+                if (response.isSuccessful() && response.body() != null) {
+                    setProfile(response.body());
+                    listener.onResult(profile);
+                } else {
+                    listener.onError(new IllegalStateException("HTTP " + response.code()));
+                }
+            }
+
+            @Override
+            public void onFailure(Call<ApiService.User> call, Throwable t) {
+                listener.onError(t);
+            }
+        });
+    }
+
+    public boolean isProfileFresh() {
+        return profile != null && isFresh(profileLoadedAt);
+    }
+
+    public void setProfile(ApiService.User user) {
+        profile = user;
+        profileLoadedAt = SystemClock.elapsedRealtime();
+    }
+
+    public void clear() {
+        reports.evictAll();
+        detailsLoadedAt.evictAll();
+        comments.evictAll();
+        meetupPoints = null;
+        meetupPointsLoadedAt = 0;
+        profile = null;
+        profileLoadedAt = 0;
+    }
+}
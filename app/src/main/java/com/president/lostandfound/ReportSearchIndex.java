@@ -0,0 +1,179 @@
+package com.president.lostandfound;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public class ReportSearchIndex {
+    private static final int MAX_REPORTS = 1000;
+
+    private static final int TITLE_WEIGHT = 4;
+    private static final int MEETUP_POINT_WEIGHT = 2;
+    private static final int USER_NAME_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static ReportSearchIndex instance;
+
+    // token -> (report id -> best field weight the token appears in)
+    private final TreeMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private final Map<Integer, Set<String>> tokensByReport = new HashMap<>();
+    private final LinkedHashMap<Integer, ApiService.Report> reports = new LinkedHashMap<>();
+
+    public static synchronized ReportSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new ReportSearchIndex();
+        }
+        return instance;
+    }
+
+    public synchronized void addAll(Collection<ApiService.Report> batch) {
+        for (ApiService.Report report : batch) {
+            add(report);
+        }
+    }
+
+    public synchronized void add(ApiService.Report report) {
+        remove(report.id);
+
+        Map<String, Integer> weights = new HashMap<>();
+        indexField(weights, report.title, TITLE_WEIGHT);
+        indexField(weights, report.meetup_point_name, MEETUP_POINT_WEIGHT);
+        indexField(weights, report.user_name, USER_NAME_WEIGHT);
+        indexField(weights, report.description, DESCRIPTION_WEIGHT);
+
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            Map<Integer, Integer> posting = postings.get(entry.getKey());
+            if (posting == null) {
+                posting = new HashMap<>();
+                postings.put(entry.getKey(), posting);
+            }
+            posting.put(report.id, entry.getValue());
+        }
+        tokensByReport.put(report.id, weights.keySet());
+        reports.put(report.id, withoutImages(report));
+
+        if (reports.size() > MAX_REPORTS) {
+            Iterator<Integer> oldest = reports.keySet().iterator();
+            remove(oldest.next());
+        }
+    }
+
+    public synchronized List<ApiService.Report> search(String query, int limit) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, Integer> scores = new HashMap<>();
+        Map<Integer, Integer> matchedTokens = new HashMap<>();
+
+        for (String queryToken : queryTokens) {
+            Map<Integer, Integer> best = new HashMap<>();
+            SortedMap<String, Map<Integer, Integer>> matches =
+                    postings.subMap(queryToken, queryToken + Character.MAX_VALUE);
+            for (Map.Entry<String, Map<Integer, Integer>> match : matches.entrySet()) {
+                boolean exact = match.getKey().length() == queryToken.length();
+                for (Map.Entry<Integer, Integer> posting : match.getValue().entrySet()) {
+                    int score = exact ? posting.getValue() * 2 : posting.getValue();
+                    Integer current = best.get(posting.getKey());
+                    if (current == null || score > current) {
+                        best.put(posting.getKey(), score);
+                    }
+                }
+            }
+            for (Map.Entry<Integer, Integer> entry : best.entrySet()) {
+                scores.merge(entry.getKey(), entry.getValue(), Integer::sum);
+                matchedTokens.merge(entry.getKey(), 1, Integer::sum);
+            }
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : matchedTokens.entrySet()) {
+            if (entry.getValue() == queryTokens.size()) {
+                ids.add(entry.getKey());
+            }
+        }
+        ids.sort((a, b) -> {
+            int byScore = Integer.compare(scores.get(b), scores.get(a));
+            return byScore != 0 ? byScore : Integer.compare(b, a);
+        });
+
+        List<ApiService.Report> results = new ArrayList<>();
+        for (int i = 0; i < ids.size() && i < limit; i++) {
+            results.add(reports.get(ids.get(i)));
+        }
+        return results;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private void remove(int reportId) {
+        Set<String> tokens = tokensByReport.remove(reportId);
+        reports.remove(reportId);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            Map<Integer, Integer> posting = postings.get(token);
+            if (posting != null) {
+                posting.remove(reportId);
+                if (posting.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    // The index outlives the dashboard's page window, so it must not pin the inline
+    // base64 images; search results are text-only until the server refinement lands.
+    private static ApiService.Report withoutImages(ApiService.Report report) {
+        ApiService.Report copy = new ApiService.Report();
+        copy.id = report.id;
+        copy.user_id = report.user_id;
+        copy.title = report.title;
+        copy.description = report.description;
+        copy.meetup_point_id = report.meetup_point_id;
+        copy.created_at = report.created_at;
+        copy.updated_at = report.updated_at;
+        copy.user_name = report.user_name;
+        copy.meetup_point_name = report.meetup_point_name;
+        copy.meetup_point_location = report.meetup_point_location;
+        return copy;
+    }
+
+    private static void indexField(Map<String, Integer> weights, String text, int weight) {
+        for (String token : new LinkedHashSet<>(tokenize(text))) {
+            Integer current = weights.get(token);
+            if (current == null || weight > current) {
+                weights.put(token, weight);
+            }
+        }
+    }
+}
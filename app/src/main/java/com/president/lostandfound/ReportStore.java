@@ -0,0 +1,442 @@
+package com.president.lostandfound;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ReportStore extends SQLiteOpenHelper {
+    private static final String TAG = "ReportStore";
+    private static final String DATABASE_NAME = "lostandfound.db";
+    private static final int DATABASE_VERSION = 3;
+    private static final int MAX_STORED_REPORTS = 100;
+    // A row has to fit in one 2 MB CursorWindow to be read back. Larger data URIs are
+    // left out and the screens fetch them from the server as they do for any miss.
+    private static final int MAX_STORED_IMAGE_LENGTH = 512 * 1024;
+
+    private static ReportStore instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "report-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public interface Callback<T> {
+        void onLoaded(T result);
+    }
+
+    private interface Read<T> {
+        T run(SQLiteDatabase db);
+    }
+
+    private interface Write {
+        void run(SQLiteDatabase db);
+    }
+
+    public static synchronized ReportStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new ReportStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ReportStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE reports ("
+                + "id INTEGER PRIMARY KEY, "
+                + "user_id INTEGER, "
+                + "title TEXT, "
+                + "description TEXT, "
+                + "image TEXT, "
+                + "meetup_point_id INTEGER, "
+                + "created_at TEXT, "
+                + "updated_at TEXT, "
+                + "user_name TEXT, "
+                + "user_profile_picture TEXT, "
+                + "meetup_point_name TEXT, "
+                + "meetup_point_location TEXT)");
+        db.execSQL("CREATE INDEX reports_created_at ON reports (created_at DESC, id DESC)");
+
+        db.execSQL("CREATE TABLE comments ("
+                + "id INTEGER PRIMARY KEY, "
+                + "report_id INTEGER, "
+                + "user_id INTEGER, "
+                + "comment TEXT, "
+                + "created_at TEXT, "
+                + "updated_at TEXT, "
+                + "user_name TEXT, "
+                + "user_profile_picture TEXT)");
+        db.execSQL("CREATE INDEX comments_report_id ON comments (report_id, id)");
+
+        db.execSQL("CREATE TABLE meetup_points ("
+                + "id INTEGER PRIMARY KEY, "
+                + "name TEXT, "
+                + "location TEXT, "
+                + "created_at TEXT)");
+
+        createOutbox(db);
+    }
+
+    // The cached tables can be rebuilt from the server at any time; the outbox holds
+    // unsent user input and must survive upgrades.
+    private static void createOutbox(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE outbox ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "type TEXT NOT NULL, "
+                + "idempotency_key TEXT NOT NULL, "
+                + "report_id INTEGER, "
+                + "meetup_point_id INTEGER, "
+                + "title TEXT, "
+                + "body TEXT, "
+                + "file_path TEXT, "
+                + "media_type TEXT, "
+                + "attempts INTEGER NOT NULL DEFAULT 0, "
+                + "next_attempt_at INTEGER NOT NULL DEFAULT 0)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            createOutbox(db);
+        }
+        if (oldVersion < 3) {
+            db.execSQL("UPDATE reports SET image = NULL WHERE length(image) > " + MAX_STORED_IMAGE_LENGTH);
+            db.execSQL("UPDATE reports SET user_profile_picture = NULL WHERE length(user_profile_picture) > "
+                    + MAX_STORED_IMAGE_LENGTH);
+            db.execSQL("UPDATE comments SET user_profile_picture = NULL WHERE length(user_profile_picture) > "
+                    + MAX_STORED_IMAGE_LENGTH);
+        }
+    }
+
+    public void loadLatestReports(int limit, Callback<List<ApiService.Report>> callback) {
+        read(db -> {
+            List<ApiService.Report> reports = new ArrayList<>();
+            try (Cursor cursor = db.query("reports", null, null, null, null, null,
+                    "created_at DESC, id DESC", String.valueOf(limit))) {
+                while (cursor.moveToNext()) {
+                    reports.add(readReport(cursor));
+                }
+            }
+            return reports;
+        }, new ArrayList<>(), callback);
+    }
+
+    public void saveReports(List<ApiService.Report> reports) {
+        List<ApiService.Report> snapshot = new ArrayList<>(reports);
+        write(db -> {
+            for (ApiService.Report report : snapshot) {
+                db.insertWithOnConflict("reports", null, toValues(report), SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            trimReports(db);
+        });
+    }
+
+    // The first page from the server is authoritative for everything at least as new as
+    // its oldest report, so stored reports in that range that it no longer lists are gone.
+    public void reconcileLatest(List<ApiService.Report> firstPage) {
+        List<ApiService.Report> snapshot = new ArrayList<>(firstPage);
+        write(db -> {
+            if (snapshot.isEmpty()) {
+                db.delete("reports", null, null);
+            } else {
+                ApiService.Report oldest = snapshot.get(snapshot.size() - 1);
+                StringBuilder ids = new StringBuilder();
+                for (ApiService.Report report : snapshot) {
+                    if (ids.length() > 0) {
+                        ids.append(',');
+                    }
+                    ids.append(report.id);
+                }
+                db.delete("reports", "(created_at > ? OR (created_at = ? AND id >= ?)) AND id NOT IN (" + ids + ")",
+                        new String[]{oldest.created_at, oldest.created_at, String.valueOf(oldest.id)});
+            }
+            for (ApiService.Report report : snapshot) {
+                db.insertWithOnConflict("reports", null, toValues(report), SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            trimReports(db);
+        });
+    }
+
+    public void loadComments(int reportId, Callback<List<ApiService.Comment>> callback) {
+        read(db -> {
+            List<ApiService.Comment> comments = new ArrayList<>();
+            try (Cursor cursor = db.query("comments", null, "report_id = ?",
+                    new String[]{String.valueOf(reportId)}, null, null, "id ASC")) {
+                while (cursor.moveToNext()) {
+                    comments.add(readComment(cursor));
+                }
+            }
+            return comments;
+        }, new ArrayList<>(), callback);
+    }
+
+    public void saveComments(int reportId, List<ApiService.Comment> comments) {
+        List<ApiService.Comment> snapshot = new ArrayList<>(comments);
+        write(db -> {
+            db.delete("comments", "report_id = ?", new String[]{String.valueOf(reportId)});
+            for (ApiService.Comment comment : snapshot) {
+                db.insertWithOnConflict("comments", null, toValues(comment), SQLiteDatabase.CONFLICT_REPLACE);
+            }
+        });
+    }
+
+    // Adds or updates comments next to those stored, e.g. ones appended to a shown thread.
+    public void insertComments(List<ApiService.Comment> comments) {
+        List<ApiService.Comment> snapshot = new ArrayList<>(comments);
+        write(db -> {
+            for (ApiService.Comment comment : snapshot) {
+                db.insertWithOnConflict("comments", null, toValues(comment), SQLiteDatabase.CONFLICT_REPLACE);
+            }
+        });
+    }
+
+    // Adds the latest page (oldest first) to what is stored for the report. Comments are
+    // never removed server-side, so stored older pages stay valid as long as the page
+    // reaches back to the newest stored comment; otherwise there would be a hole between
+    // them and the stored comments are replaced instead.
+    public void mergeLatestComments(int reportId, List<ApiService.Comment> latestPage) {
+        List<ApiService.Comment> snapshot = new ArrayList<>(latestPage);
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        write(db -> {
+            String[] args = {String.valueOf(reportId)};
+            long newestStored = DatabaseUtils.longForQuery(db,
+                    "SELECT COALESCE(MAX(id), 0) FROM comments WHERE report_id = ?", args);
+            if (snapshot.get(0).id > newestStored) {
+                db.delete("comments", "report_id = ?", args);
+            }
+            for (ApiService.Comment comment : snapshot) {
+                db.insertWithOnConflict("comments", null, toValues(comment), SQLiteDatabase.CONFLICT_REPLACE);
+            }
+        });
+    }
+
+    public void loadMeetupPoints(Callback<List<ApiService.MeetupPoint>> callback) {
+        read(db -> {
+            List<ApiService.MeetupPoint> points = new ArrayList<>();
+            try (Cursor cursor = db.query("meetup_points", null, null, null, null, null, "name ASC")) {
+                while (cursor.moveToNext()) {
+                    ApiService.MeetupPoint point = new ApiService.MeetupPoint();
+                    point.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
+                    point.name = cursor.getString(cursor.getColumnIndexOrThrow("name"));
+                    point.location = cursor.getString(cursor.getColumnIndexOrThrow("location"));
+                    point.created_at = cursor.getString(cursor.getColumnIndexOrThrow("created_at"));
+                    points.add(point);
+                }
+            }
+            return points;
+        }, new ArrayList<>(), callback);
+    }
+
+    public void saveMeetupPoints(List<ApiService.MeetupPoint> points) {
+        List<ApiService.MeetupPoint> snapshot = new ArrayList<>(points);
+        write(db -> {
+            db.delete("meetup_points", null, null);
+            for (ApiService.MeetupPoint point : snapshot) {
+                ContentValues values = new ContentValues();
+                values.put("id", point.id);
+                values.put("name", point.name);
+                values.put("location", point.location);
+                values.put("created_at", point.created_at);
+                db.insert("meetup_points", null, values);
+            }
+        });
+    }
+
+    // Delivers -1 if the entry could not be stored, like SQLiteDatabase.insert().
+    public void addOutboxEntry(Outbox.Entry entry, Callback<Long> callback) {
+        read(db -> {
+            ContentValues values = new ContentValues();
+            values.put("type", entry.type);
+            values.put("idempotency_key", entry.idempotencyKey);
+            values.put("report_id", entry.reportId);
+            values.put("meetup_point_id", entry.meetupPointId);
+            values.put("title", entry.title);
+            values.put("body", entry.body);
+            values.put("file_path", entry.filePath);
+            values.put("media_type", entry.mediaType);
+            return db.insert("outbox", null, values);
+        }, -1L, callback);
+    }
+
+    public void loadOutbox(Callback<List<Outbox.Entry>> callback) {
+        read(db -> {
+            List<Outbox.Entry> entries = new ArrayList<>();
+            try (Cursor cursor = db.query("outbox", null, null, null, null, null, "id ASC")) {
+                while (cursor.moveToNext()) {
+                    Outbox.Entry entry = new Outbox.Entry();
+                    entry.id = cursor.getLong(cursor.getColumnIndexOrThrow("id"));
+                    entry.type = cursor.getString(cursor.getColumnIndexOrThrow("type"));
+                    entry.idempotencyKey = cursor.getString(cursor.getColumnIndexOrThrow("idempotency_key"));
+                    entry.reportId = cursor.getInt(cursor.getColumnIndexOrThrow("report_id"));
+                    entry.meetupPointId = cursor.getInt(cursor.getColumnIndexOrThrow("meetup_point_id"));
+                    entry.title = cursor.getString(cursor.getColumnIndexOrThrow("title"));
+                    entry.body = cursor.getString(cursor.getColumnIndexOrThrow("body"));
+                    entry.filePath = cursor.getString(cursor.getColumnIndexOrThrow("file_path"));
+                    entry.mediaType = cursor.getString(cursor.getColumnIndexOrThrow("media_type"));
+                    entry.attempts = cursor.getInt(cursor.getColumnIndexOrThrow("attempts"));
+                    entry.nextAttemptAt = cursor.getLong(cursor.getColumnIndexOrThrow("next_attempt_at"));
+                    entries.add(entry);
+                }
+            }
+            return entries;
+        }, new ArrayList<>(), callback);
+    }
+
+    public void deleteOutboxEntries(List<Outbox.Entry> entries) {
+        List<Outbox.Entry> snapshot = new ArrayList<>(entries);
+        write(db -> {
+            for (Outbox.Entry entry : snapshot) {
+                db.delete("outbox", "id = ?", new String[]{String.valueOf(entry.id)});
+            }
+        });
+    }
+
+    public void updateOutboxAttempts(List<Outbox.Entry> entries) {
+        List<Outbox.Entry> snapshot = new ArrayList<>(entries);
+        write(db -> {
+            for (Outbox.Entry entry : snapshot) {
+                ContentValues values = new ContentValues();
+                values.put("attempts", entry.attempts);
+                values.put("next_attempt_at", entry.nextAttemptAt);
+                db.update("outbox", values, "id = ?", new String[]{String.valueOf(entry.id)});
+            }
+        });
+    }
+
+    public void clearOutbox() {
+        write(db -> db.delete("outbox", null, null));
+    }
+
+    // Other disk cleanup that must stay off the main thread, e.g. on sign-out, shares the
+    // store's thread.
+    public void runInBackground(Runnable task) {
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Background task failed", e);
+            }
+        });
+    }
+
+    // Runs on the store thread. A failed read delivers fallback rather than crashing the
+    // app; callers already treat an empty result as "nothing stored".
+    private <T> void read(Read<T> query, T fallback, Callback<T> callback) {
+        executor.execute(() -> {
+            T result;
+            try {
+                result = query.run(getWritableDatabase());
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Read failed", e);
+                result = fallback;
+            }
+            T loaded = result;
+            mainHandler.post(() -> callback.onLoaded(loaded));
+        });
+    }
+
+    // Runs on the store thread in one transaction; a failure rolls it back and is logged.
+    private void write(Write task) {
+        executor.execute(() -> {
+            try {
+                SQLiteDatabase db = getWritableDatabase();
+                db.beginTransaction();
+                try {
+                    task.run(db);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Write failed", e);
+            }
+        });
+    }
+
+    private void trimReports(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM reports WHERE id NOT IN "
+                + "(SELECT id FROM reports ORDER BY created_at DESC, id DESC LIMIT " + MAX_STORED_REPORTS + ")");
+    }
+
+    private static ContentValues toValues(ApiService.Report report) {
+        ContentValues values = new ContentValues();
+        values.put("id", report.id);
+        values.put("user_id", report.user_id);
+        values.put("title", report.title);
+        values.put("description", report.description);
+        values.put("image", storable(report.image));
+        values.put("meetup_point_id", report.meetup_point_id);
+        values.put("created_at", report.created_at);
+        values.put("updated_at", report.updated_at);
+        values.put("user_name", report.user_name);
+        values.put("user_profile_picture", storable(report.user_profile_picture));
+        values.put("meetup_point_name", report.meetup_point_name);
+        values.put("meetup_point_location", report.meetup_point_location);
+        return values;
+    }
+
+    private static ContentValues toValues(ApiService.Comment comment) {
+        ContentValues values = new ContentValues();
+        values.put("id", comment.id);
+        values.put("report_id", comment.report_id);
+        values.put("user_id", comment.user_id);
+        values.put("comment", comment.comment);
+        values.put("created_at", comment.created_at);
+        values.put("updated_at", comment.updated_at);
+        values.put("user_name", comment.user_name);
+        values.put("user_profile_picture", storable(comment.user_profile_picture));
+        return values;
+    }
+
+    private static String storable(String image) {
+        return image != null && image.length() > MAX_STORED_IMAGE_LENGTH ? null : image;
+    }
+
+    private static ApiService.Report readReport(Cursor cursor) {
+        ApiService.Report report = new ApiService.Report();
+        report.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
+        report.user_id = cursor.getInt(cursor.getColumnIndexOrThrow("user_id"));
+        report.title = cursor.getString(cursor.getColumnIndexOrThrow("title"));
+        report.description = cursor.getString(cursor.getColumnIndexOrThrow("description"));
+        report.image = cursor.getString(cursor.getColumnIndexOrThrow("image"));
+        report.meetup_point_id = cursor.getInt(cursor.getColumnIndexOrThrow("meetup_point_id"));
+        report.created_at = cursor.getString(cursor.getColumnIndexOrThrow("created_at"));
+        report.updated_at = cursor.getString(cursor.getColumnIndexOrThrow("updated_at"));
+        report.user_name = cursor.getString(cursor.getColumnIndexOrThrow("user_name"));
+        report.user_profile_picture = cursor.getString(cursor.getColumnIndexOrThrow("user_profile_picture"));
+        report.meetup_point_name = cursor.getString(cursor.getColumnIndexOrThrow("meetup_point_name"));
+        report.meetup_point_location = cursor.getString(cursor.getColumnIndexOrThrow("meetup_point_location"));
+        return report;
+    }
+
+    private static ApiService.Comment readComment(Cursor cursor) {
+        ApiService.Comment comment = new ApiService.Comment();
+        comment.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
+        comment.report_id = cursor.getInt(cursor.getColumnIndexOrThrow("report_id"));
+        comment.user_id = cursor.getInt(cursor.getColumnIndexOrThrow("user_id"));
+        comment.comment = cursor.getString(cursor.getColumnIndexOrThrow("comment"));
+        comment.created_at = cursor.getString(cursor.getColumnIndexOrThrow("created_at"));
+        comment.updated_at = cursor.getString(cursor.getColumnIndexOrThrow("updated_at"));
+        comment.user_name = cursor.getString(cursor.getColumnIndexOrThrow("user_name"));
+        comment.user_profile_picture = cursor.getString(cursor.getColumnIndexOrThrow("user_profile_picture"));
+        return comment;
+    }
+}
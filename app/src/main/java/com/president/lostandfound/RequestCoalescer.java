@@ -0,0 +1,201 @@
+package com.president.lostandfound;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.http.GET;
+import retrofit2.http.Streaming;
+
+// Wraps ApiInterface so that concurrent enqueued GETs with the same method and arguments
+// share one HTTP call; the single response is fanned out to every waiting callback.
+// Streaming GETs are left alone since their body can only be read once.
+public class RequestCoalescer {
+
+    private final Map<String, Flight<?>> inFlight = new HashMap<>();
+
+    public static ApiService.ApiInterface wrap(ApiService.ApiInterface delegate) {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        return (ApiService.ApiInterface) Proxy.newProxyInstance(
+                ApiService.ApiInterface.class.getClassLoader(),
+                new Class<?>[]{ApiService.ApiInterface.class},
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(delegate, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof Call && isCoalescable(method)) {
+                        return new CoalescingCall<>(coalescer, key(method, args), (Call<?>) result);
+                    }
+                    return result;
+                });
+    }
+
+    private static boolean isCoalescable(Method method) {
+        return method.isAnnotationPresent(GET.class) && !method.isAnnotationPresent(Streaming.class);
+    }
+
+    private static String key(Method method, Object[] args) {
+        return method.getName() + Arrays.deepToString(args);
+    }
+
+    private static class Flight<T> {
+        final Call<T> call;
+        final List<CoalescingCall<T>> waiters = new ArrayList<>();
+        final List<Callback<T>> callbacks = new ArrayList<>();
+
+        Flight(Call<T> call) {
+            this.call = call;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized <T> void join(String key, CoalescingCall<T> waiter, Callback<T> callback) {
+        Flight<T> flight = (Flight<T>) inFlight.get(key);
+        if (flight != null) {
+            flight.waiters.add(waiter);
+            flight.callbacks.add(callback);
+            return;
+        }
+
+        Flight<T> started = new Flight<>(waiter.delegate);
+        started.waiters.add(waiter);
+        started.callbacks.add(callback);
+        inFlight.put(key, started);
+
+        waiter.delegate.enqueue(new Callback<T>() {
+            @Override
+            public void onResponse(Call<T> call, Response<T> response) {
+                for (Waiter<T> each : land(key, started)) {
+                    each.callback.onResponse(each.call, response);
+                }
+            }
+
+            @Override
+            public void onFailure(Call<T> call, Throwable t) {
+                for (Waiter<T> each : land(key, started)) {
+                    each.callback.onFailure(each.call, t);
+                }
+            }
+        });
+    }
+
+    // A cancelled waiter gets no callback; the HTTP call is only cancelled once nobody
+    // is left waiting for it.
+    synchronized <T> void leave(String key, CoalescingCall<T> waiter) {
+        @SuppressWarnings("unchecked")
+        Flight<T> flight = (Flight<T>) inFlight.get(key);
+        if (flight == null) {
+            return;
+        }
+        int index = flight.waiters.indexOf(waiter);
+        if (index < 0) {
+            return;
+        }
+        flight.waiters.remove(index);
+        flight.callbacks.remove(index);
+        if (flight.waiters.isEmpty()) {
+            inFlight.remove(key);
+            flight.call.cancel();
+        }
+    }
+
+    private static class Waiter<T> {
+        final Call<T> call;
+        final Callback<T> callback;
+
+        Waiter(Call<T> call, Callback<T> callback) {
+            this.call = call;
+            this.callback = callback;
+        }
+    }
+
+    private synchronized <T> List<Waiter<T>> land(String key, Flight<T> flight) {
+        if (inFlight.get(key) == flight) {
+            inFlight.remove(key);
+        }
+        List<Waiter<T>> waiters = new ArrayList<>();
+        for (int i = 0; i < flight.waiters.size(); i++) {
+            waiters.add(new Waiter<>(flight.waiters.get(i), flight.callbacks.get(i)));
+        }
+        flight.waiters.clear();
+        flight.callbacks.clear();
+        return waiters;
+    }
+
+    static class CoalescingCall<T> implements Call<T> {
+        private final RequestCoalescer coalescer;
+        private final String key;
+        final Call<T> delegate;
+        private volatile boolean executed;
+        private volatile boolean canceled;
+
+        CoalescingCall(RequestCoalescer coalescer, String key, Call<T> delegate) {
+            this.coalescer = coalescer;
+            this.key = key;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Response<T> execute() throws IOException {
+            executed = true;
+            return delegate.execute();
+        }
+
+        @Override
+        public void enqueue(Callback<T> callback) {
+            if (executed) {
+                throw new IllegalStateException("Already executed.");
+            }
+            executed = true;
+            coalescer.join(key, this, callback);
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            coalescer.leave(key, this);
+            if (!delegate.isExecuted()) {
+                delegate.cancel();
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Call<T> clone() {
+            return new CoalescingCall<>(coalescer, key, delegate.clone());
+        }
+
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+
+        @Override
+        public Timeout timeout() {
+            return delegate.timeout();
+        }
+    }
+}
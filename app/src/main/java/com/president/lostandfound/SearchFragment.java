@@ -1,14 +1,9 @@
 package com.president.lostandfound;
 
-import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
-import android.util.Base64;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -20,23 +15,31 @@ import android.widget.Toast;
 
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import retrofit2.Call;
-import retrofit2.Callback;
 import retrofit2.Response;
 
 public class SearchFragment extends Fragment {
 
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+    private static final int LOCAL_RESULT_LIMIT = 50;
+
     private EditText etSearch;
     private RecyclerView recyclerView;
     private ProgressBar progressBar;
     private TextView tvEmpty;
     private SearchAdapter adapter;
     private List<ApiService.Report> reports = new ArrayList<>();
+    private DebouncedSearch<List<ApiService.Report>> search;
+    private ReportPrefetcher prefetcher;
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -48,12 +51,46 @@ public class SearchFragment extends Fragment {
         tvEmpty = view.findViewById(R.id.tvEmpty);
 
         recyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
-        adapter = new SearchAdapter(reports, report -> {
+        adapter = new SearchAdapter(report -> {
             Intent intent = new Intent(requireContext(), ReportDetailActivity.class);
             intent.putExtra("report_id", report.id);
             startActivity(intent);
         });
         recyclerView.setAdapter(adapter);
+        prefetcher = ReportPrefetcher.attach(recyclerView);
+
+        search = new DebouncedSearch<>(SEARCH_DEBOUNCE_MS,
+                query -> ApiService.getApiService().searchReports(query),
+                new DebouncedSearch.Listener<List<ApiService.Report>>() {
+                    @Override
+                    public void onSearchStarted(String query) {
+                        if (reports.isEmpty()) {
+                            progressBar.setVisibility(View.VISIBLE);
+                            tvEmpty.setVisibility(View.GONE);
+                        }
+                    }
+
+                    @Override
+                    public void onResults(String query, Response<List<ApiService.Report>> response) {
+                        progressBar.setVisibility(View.GONE);
+
+                        if (response.isSuccessful() && response.body() != null) {
+                            ReportSearchIndex.getInstance().addAll(response.body());
+                            ReportRepository.getInstance().putReports(response.body());
+                            showResults(mergeResults(response.body(), searchLocally(query)));
+                        } else if (reports.isEmpty()) {
+                            Toast.makeText(requireContext(), "Search failed", Toast.LENGTH_SHORT).show();
+                        }
+                    }
+
+                    @Override
+                    public void onError(String query, Throwable t) {
+                        progressBar.setVisibility(View.GONE);
+                        if (reports.isEmpty()) {
+                            Toast.makeText(requireContext(), "Search failed", Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                });
 
         etSearch.addTextChangedListener(new TextWatcher() {
             @Override
@@ -61,11 +98,14 @@ public class SearchFragment extends Fragment {
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                if (s.length() > 0) {
-                    searchReports(s.toString());
+                if (s.toString().trim().length() > 0) {
+                    showResults(searchLocally(s.toString()));
+                    search.submit(s.toString());
                 } else {
-                    reports.clear();
-                    adapter.notifyDataSetChanged();
+                    search.cancel();
+                    progressBar.setVisibility(View.GONE);
+                    reports = new ArrayList<>();
+                    adapter.submitList(reports);
                     tvEmpty.setVisibility(View.VISIBLE);
                     tvEmpty.setText("Start typing to search...");
                 }
@@ -78,52 +118,87 @@ public class SearchFragment extends Fragment {
         return view;
     }
 
-    private void searchReports(String query) {
-        progressBar.setVisibility(View.VISIBLE);
-        tvEmpty.setVisibility(View.GONE);
-
-        SharedPreferences prefs = requireContext().getSharedPreferences("AppPrefs", Context.MODE_PRIVATE);
-        String token = "Bearer " + prefs.getString("token", null);
-
-        ApiService.getApiService().searchReports(token, query).enqueue(new Callback<List<ApiService.Report>>() {
-            @Override
-            public void onResponse(Call<List<ApiService.Report>> call, Response<List<ApiService.Report>> response) {
-                progressBar.setVisibility(View.GONE);
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        if (hidden) {
+            prefetcher.cancel();
+        } else {
+            prefetcher.schedule();
+        }
+    }
 
-                if (response.isSuccessful() && response.body() != null) {
-                    reports.clear();
-                    reports.addAll(response.body());
-                    adapter.notifyDataSetChanged();
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        search.cancel();
+        prefetcher.detach();
+    }
 
-                    if (reports.isEmpty()) {
-                        tvEmpty.setVisibility(View.VISIBLE);
-                        tvEmpty.setText("No results found");
-                    }
-                } else {
-                    Toast.makeText(requireContext(), "Search failed", Toast.LENGTH_SHORT).show();
-                }
+    // Index hits are text-only copies. Reports already on screen, or still held by the
+    // repository, are shown as the full rows instead so their thumbnails don't drop out
+    // while the user types.
+    private List<ApiService.Report> searchLocally(String query) {
+        Map<Integer, ApiService.Report> shown = new HashMap<>();
+        for (ApiService.Report report : reports) {
+            shown.put(report.id, report);
+        }
+        List<ApiService.Report> results = new ArrayList<>();
+        for (ApiService.Report hit : ReportSearchIndex.getInstance().search(query, LOCAL_RESULT_LIMIT)) {
+            ApiService.Report full = shown.get(hit.id);
+            if (full == null) {
+                full = ReportRepository.getInstance().getReport(hit.id);
             }
+            results.add(full != null ? full : hit);
+        }
+        return results;
+    }
 
-            @Override
-            public void onFailure(Call<List<ApiService.Report>> call, Throwable t) {
-                progressBar.setVisibility(View.GONE);
-                Toast.makeText(requireContext(), "Search failed", Toast.LENGTH_SHORT).show();
+    // Server rows come first since they carry images; local-only matches (the index also
+    // covers meetup point and poster name) follow.
+    private List<ApiService.Report> mergeResults(List<ApiService.Report> remote, List<ApiService.Report> local) {
+        List<ApiService.Report> merged = new ArrayList<>(remote);
+        Set<Integer> ids = new HashSet<>();
+        for (ApiService.Report report : remote) {
+            ids.add(report.id);
+        }
+        for (ApiService.Report report : local) {
+            if (ids.add(report.id)) {
+                merged.add(report);
             }
-        });
+        }
+        return merged;
+    }
+
+    private void showResults(List<ApiService.Report> results) {
+        reports = results;
+        adapter.submitList(results);
+
+        if (reports.isEmpty()) {
+            tvEmpty.setVisibility(View.VISIBLE);
+            tvEmpty.setText("No results found");
+        } else {
+            tvEmpty.setVisibility(View.GONE);
+        }
     }
 
-    private static class SearchAdapter extends RecyclerView.Adapter<SearchAdapter.ViewHolder> {
+    private static class SearchAdapter extends ListAdapter<ApiService.Report, SearchAdapter.ViewHolder> {
 
-        private List<ApiService.Report> reports;
         private OnReportClickListener listener;
 
         interface OnReportClickListener {
             void onReportClick(ApiService.Report report);
         }
 
-        SearchAdapter(List<ApiService.Report> reports, OnReportClickListener listener) {
-            this.reports = reports;
+        SearchAdapter(OnReportClickListener listener) {
+            super(ReportDiffCallback.INSTANCE);
             this.listener = listener;
+            setHasStableIds(true);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return getItem(position).id;
         }
 
         @Override
@@ -135,32 +210,27 @@ public class SearchFragment extends Fragment {
 
         @Override
         public void onBindViewHolder(ViewHolder holder, int position) {
-            ApiService.Report report = reports.get(position);
+            ApiService.Report report = getItem(position);
 
             holder.tvTitle.setText(report.title);
             holder.tvDescription.setText(report.description);
             holder.tvMeetupPoint.setText(report.meetup_point_name);
 
             if (report.image != null && !report.image.isEmpty()) {
-                try {
-                    String base64Image = report.image;
-                    if (base64Image.contains(",")) {
-                        base64Image = base64Image.split(",")[1];
-                    }
-                    byte[] decodedString = Base64.decode(base64Image, Base64.DEFAULT);
-                    Bitmap decodedByte = BitmapFactory.decodeByteArray(decodedString, 0, decodedString.length);
-                    holder.ivImage.setImageBitmap(decodedByte);
-                } catch (Exception e) {
-                    holder.ivImage.setImageResource(android.R.color.darker_gray);
-                }
+                ImageLoader.getInstance().loadThumbnail(ImageLoader.key("report", report.id, report.image),
+                        ThumbnailStore.key("report", report.id, report.updated_at),
+                        report.image, holder.ivImage, android.R.color.darker_gray);
+            } else {
+                ImageLoader.getInstance().cancel(holder.ivImage);
+                holder.ivImage.setImageDrawable(null);
             }
 
             holder.itemView.setOnClickListener(v -> listener.onReportClick(report));
         }
 
         @Override
-        public int getItemCount() {
-            return reports.size();
+        public void onViewRecycled(ViewHolder holder) {
+            ImageLoader.getInstance().cancel(holder.ivImage);
         }
 
         static class ViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,122 @@
+package com.president.lostandfound;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.IOException;
+
+import retrofit2.Response;
+
+// The signed-in user's token, read from AppPrefs once and then kept in memory. Requests
+// get it through AuthInterceptor; nothing else needs to touch the preferences for it.
+public class SessionStore {
+    private static final String KEY_TOKEN = "token";
+    private static final String BEARER = "Bearer ";
+
+    private static SessionStore instance;
+
+    private final SharedPreferences prefs;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Held only while renewing, so setToken() from the UI never waits on the network.
+    private final Object refreshLock = new Object();
+    private volatile String authorization;
+    private Listener listener;
+
+    public interface Listener {
+        // The server refused to renew the session; called on the main thread.
+        void onSessionExpired();
+    }
+
+    public static synchronized SessionStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new SessionStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private SessionStore(Context context) {
+        prefs = context.getSharedPreferences("AppPrefs", Context.MODE_PRIVATE);
+        authorization = toAuthorization(prefs.getString(KEY_TOKEN, null));
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public String getToken() {
+        String current = authorization;
+        return current == null ? null : current.substring(BEARER.length());
+    }
+
+    // The Authorization header value, or null when signed out.
+    public String getAuthorization() {
+        return authorization;
+    }
+
+    // Whether the stored token can still be used, directly or through refresh().
+    public boolean hasUsableToken() {
+        return Jwt.isRefreshable(getToken());
+    }
+
+    public void setToken(String newToken) {
+        authorization = toAuthorization(newToken);
+        prefs.edit().putString(KEY_TOKEN, newToken).apply();
+    }
+
+    public void clear() {
+        authorization = null;
+        prefs.edit().remove(KEY_TOKEN).apply();
+    }
+
+    // Called by AuthInterceptor when a request sent with failedAuthorization came back
+    // 401. Requests failing together all land here; the first one renews the token and
+    // the rest find it already replaced and simply retry with the new one. Returns the
+    // header to retry with, or null if the request should fail as it is.
+    String refresh(String failedAuthorization) {
+        synchronized (refreshLock) {
+            String current = authorization;
+            if (current == null || !current.equals(failedAuthorization)) {
+                return current;
+            }
+            if (!Jwt.isRefreshable(getToken())) {
+                expire();
+                return null;
+            }
+
+            Response<ApiService.LoginResponse> response;
+            try {
+                response = ApiService.getApiService().refreshToken(current).execute();
+            } catch (IOException e) {
+                return null;
+            }
+            if (response.isSuccessful() && response.body() != null && response.body().token != null) {
+                String renewed = toAuthorization(response.body().token);
+                // Signed out or signed in again while the refresh was running.
+                if (!current.equals(authorization)) {
+                    return authorization;
+                }
+                setToken(response.body().token);
+                return renewed;
+            }
+            if ((response.code() == 401 || response.code() == 403) && current.equals(authorization)) {
+                expire();
+            }
+            return null;
+        }
+    }
+
+    private void expire() {
+        clear();
+        mainHandler.post(() -> {
+            if (listener != null) {
+                listener.onSessionExpired();
+            }
+        });
+    }
+
+    private static String toAuthorization(String token) {
+        return token == null ? null : BEARER + token;
+    }
+}
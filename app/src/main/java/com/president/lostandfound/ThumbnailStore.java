@@ -0,0 +1,145 @@
+package com.president.lostandfound;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+// Small pre-scaled copies of feed images on disk, so a returning user's feed is drawn
+// from a few KB per row instead of decoding the full base64 image again. Entries are
+// named after the report id and its updated_at, so an edited report misses and
+// replaces its old thumbnail.
+public class ThumbnailStore {
+    private static final long MAX_SIZE = 20 * 1024 * 1024;
+    private static final int QUALITY = 80;
+
+    private static ThumbnailStore instance;
+
+    private final File dir;
+    private long size = -1;
+
+    public static void init(Context context) {
+        instance = new ThumbnailStore(new File(context.getCacheDir(), "thumbs"));
+    }
+
+    // Null until init has run.
+    public static ThumbnailStore getInstance() {
+        return instance;
+    }
+
+    ThumbnailStore(File dir) {
+        this.dir = dir;
+    }
+
+    public static String key(String scope, int id, String updatedAt) {
+        return scope + "-" + id + "-" + Integer.toHexString(updatedAt == null ? 0 : updatedAt.hashCode());
+    }
+
+    // Called from the decode threads.
+    public Bitmap get(String key, Bitmap.Config config) {
+        File file = new File(dir, key + ".webp");
+        if (!file.isFile()) {
+            return null;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = config;
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+        if (bitmap == null) {
+            file.delete();
+            return null;
+        }
+        // Last-modified doubles as last-used for pruning.
+        file.setLastModified(System.currentTimeMillis());
+        return bitmap;
+    }
+
+    public synchronized void put(String key, Bitmap bitmap) {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        currentSize();
+        // Older thumbnails of the same item are stale once a new one is written.
+        String prefix = key.substring(0, key.lastIndexOf('-') + 1);
+        File[] stale = dir.listFiles((d, name) -> name.startsWith(prefix));
+        if (stale != null) {
+            for (File file : stale) {
+                remove(file);
+            }
+        }
+
+        File file = new File(dir, key + ".webp");
+        File tmp = new File(dir, key + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            bitmap.compress(compressFormat(), QUALITY, out);
+        } catch (IOException e) {
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return;
+        }
+        size += file.length();
+        if (size > MAX_SIZE) {
+            prune();
+        }
+    }
+
+    public synchronized void clear() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        size = 0;
+    }
+
+    private long currentSize() {
+        if (size < 0) {
+            size = 0;
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    size += file.length();
+                }
+            }
+        }
+        return size;
+    }
+
+    // Drops least recently used files until the store is back to three quarters of its
+    // budget, so pruning doesn't run again on the very next write.
+    private void prune() {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (size <= MAX_SIZE * 3 / 4) {
+                break;
+            }
+            remove(file);
+        }
+    }
+
+    private void remove(File file) {
+        long length = file.length();
+        if (file.delete() && size >= 0) {
+            size -= length;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat compressFormat() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+    }
+}
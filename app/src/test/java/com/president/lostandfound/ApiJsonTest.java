@@ -0,0 +1,92 @@
+package com.president.lostandfound;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ApiJsonTest {
+    private static final Type REPORT_LIST = new TypeToken<List<ApiService.Report>>() {}.getType();
+
+    @Test
+    public void reportsMatchReflectiveParsing() {
+        String json = reports(1000);
+
+        List<ApiService.Report> expected = new Gson().fromJson(json, REPORT_LIST);
+        List<ApiService.Report> actual = ApiJson.GSON.fromJson(json, REPORT_LIST);
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            ApiService.Report e = expected.get(i);
+            ApiService.Report a = actual.get(i);
+            assertEquals(e.id, a.id);
+            assertEquals(e.user_id, a.user_id);
+            assertEquals(e.title, a.title);
+            assertEquals(e.description, a.description);
+            assertEquals(e.image, a.image);
+            assertEquals(e.meetup_point_id, a.meetup_point_id);
+            assertEquals(e.created_at, a.created_at);
+            assertEquals(e.updated_at, a.updated_at);
+            assertEquals(e.user_name, a.user_name);
+            assertEquals(e.user_profile_picture, a.user_profile_picture);
+            assertEquals(e.meetup_point_name, a.meetup_point_name);
+            assertEquals(e.meetup_point_location, a.meetup_point_location);
+        }
+        assertSame(actual.get(0).meetup_point_name, actual.get(5).meetup_point_name);
+    }
+
+    @Test
+    public void toleratesNullsAndUnknownFields() {
+        ApiService.Comment comment = ApiJson.GSON.fromJson(
+                "{\"id\":3,\"comment\":null,\"user_profile_picture\":null,\"extra\":{\"a\":[1,2]},\"user_id\":null}",
+                ApiService.Comment.class);
+
+        assertEquals(3, comment.id);
+        assertNull(comment.comment);
+        assertNull(comment.user_profile_picture);
+        assertEquals(0, comment.user_id);
+    }
+
+    @Test
+    public void writesWhatItReads() {
+        ApiService.MeetupPoint point = new ApiService.MeetupPoint();
+        point.id = 2;
+        point.name = "Library";
+        point.location = "Ground floor";
+
+        ApiService.MeetupPoint copy = ApiJson.GSON.fromJson(ApiJson.GSON.toJson(point), ApiService.MeetupPoint.class);
+
+        assertEquals(point.id, copy.id);
+        assertEquals(point.name, copy.name);
+        assertEquals(point.location, copy.location);
+        assertNull(copy.created_at);
+    }
+
+    private static String reports(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i)
+                    .append(",\"user_id\":").append(i % 20)
+                    .append(",\"title\":\"Lost item ").append(i).append('"')
+                    .append(",\"description\":\"Blue backpack left near the library\"")
+                    .append(",\"image\":\"data:image/jpeg;base64,/9j/").append(i).append('"')
+                    .append(",\"meetup_point_id\":").append(i % 5)
+                    .append(",\"created_at\":\"2024-01-15T10:30:00.000Z\"")
+                    .append(",\"updated_at\":\"2024-01-15T10:30:00.000Z\"")
+                    .append(",\"user_name\":\"User ").append(i % 20).append('"')
+                    .append(",\"user_profile_picture\":").append(i % 3 == 0 ? "null" : "\"data:image/jpeg;base64,/9j/u\"")
+                    .append(",\"meetup_point_name\":\"Point ").append(i % 5).append('"')
+                    .append(",\"meetup_point_location\":\"Building ").append(i % 5).append('"')
+                    .append('}');
+        }
+        return json.append(']').toString();
+    }
+}
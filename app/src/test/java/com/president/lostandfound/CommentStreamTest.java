@@ -0,0 +1,85 @@
+package com.president.lostandfound;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class CommentStreamTest {
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void resumesFromLastEventAfterDisconnect() throws Exception {
+        server.enqueue(eventStream("id: 7\nevent: comment\ndata: {\"id\":7,\"comment\":\"first\"}\n\n"));
+        server.enqueue(eventStream(": ping\n\nid: 8\nevent: comment\ndata: {\"id\":8,\"comment\":\"second\"}\n\n"));
+
+        BlockingQueue<ApiService.Comment> received = new LinkedBlockingQueue<>();
+        CommentStream stream = new CommentStream(authorized("Bearer token"), server.url("/"), 3,
+                Runnable::run, received::add);
+        stream.start(5);
+
+        RecordedRequest first = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("/api/reports/3/comments/stream", first.getPath());
+        assertEquals("Bearer token", first.getHeader("Authorization"));
+        assertEquals("5", first.getHeader("Last-Event-ID"));
+        assertEquals(7, received.poll(5, TimeUnit.SECONDS).id);
+
+        RecordedRequest second = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("7", second.getHeader("Last-Event-ID"));
+        ApiService.Comment comment = received.poll(5, TimeUnit.SECONDS);
+        assertEquals(8, comment.id);
+        assertEquals("second", comment.comment);
+
+        stream.stop();
+    }
+
+    @Test
+    public void stopsOnClientError() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(403));
+
+        CommentStream stream = new CommentStream(authorized("Bearer expired"), server.url("/"), 3,
+                Runnable::run, comment -> fail("unexpected comment"));
+        stream.start(0);
+
+        RecordedRequest first = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("0", first.getHeader("Last-Event-ID"));
+        assertNull(server.takeRequest(2, TimeUnit.SECONDS));
+
+        stream.stop();
+    }
+
+    private static MockResponse eventStream(String body) {
+        return new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(body);
+    }
+
+    // Stands in for the app client's AuthInterceptor.
+    private static OkHttpClient authorized(String authorization) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(chain -> chain.proceed(
+                        chain.request().newBuilder().header("Authorization", authorization).build()))
+                .build();
+    }
+}